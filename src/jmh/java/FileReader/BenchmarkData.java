@@ -0,0 +1,126 @@
+package FileReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the CSV files and templates used by the benchmarks.
+ */
+public final class BenchmarkData {
+
+  /** Number of columns in every generated CSV. */
+  public static final int COLUMNS = 40;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Gets the name of a generated column.
+   *
+   * @param column int, the index of the column.
+   * @return String, the header value of the column.
+   */
+  public static String columnName(int column) {
+    return "field_" + column;
+  }
+
+  /**
+   * Gets the header row of a generated CSV.
+   *
+   * @return List<String>, the header values.
+   */
+  public static List<String> header() {
+    List<String> header = new ArrayList<>();
+    for (int c = 0; c < COLUMNS; c++) {
+      header.add(columnName(c));
+    }
+    return header;
+  }
+
+  /**
+   * Gets one generated data row.
+   *
+   * @param row int, the number of the row.
+   * @return List<String>, the values of the row.
+   */
+  public static List<String> row(int row) {
+    List<String> values = new ArrayList<>();
+    for (int c = 0; c < COLUMNS; c++) {
+      values.add("value " + row + "-" + c);
+    }
+    return values;
+  }
+
+  /**
+   * Formats the values as one quoted CSV line.
+   *
+   * @param values List<String>, the values of the row.
+   * @return String, the CSV line.
+   */
+  public static String csvLine(List<String> values) {
+    StringBuilder line = new StringBuilder();
+    for (int c = 0; c < values.size(); c++) {
+      if (c > 0) {
+        line.append(',');
+      }
+      line.append('"').append(values.get(c)).append('"');
+    }
+    return line.toString();
+  }
+
+  /**
+   * Writes a CSV file with a header and the given number of data rows.
+   *
+   * @param file Path, the file to write.
+   * @param rows int, the number of data rows.
+   * @throws IOException if an I/O error occurs while writing.
+   */
+  public static void writeCsv(Path file, int rows) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(csvLine(header()));
+      writer.newLine();
+      for (int r = 1; r <= rows; r++) {
+        writer.write(csvLine(row(r)));
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Builds a letter-like template referencing the given number of columns.
+   *
+   * @param placeholders int, the number of placeholders, at most COLUMNS.
+   * @return String, the template content.
+   */
+  public static String template(int placeholders) {
+    StringBuilder template = new StringBuilder("Dear customer,").append(System.lineSeparator());
+    for (int p = 0; p < placeholders; p++) {
+      template.append("Your ").append(columnName(p)).append(" on file is [[")
+          .append(columnName(p)).append("]].").append(System.lineSeparator());
+    }
+    template.append("Sincerely,").append(System.lineSeparator()).append("Insurance Company CEO");
+    return template.toString();
+  }
+
+  /**
+   * Deletes a directory and everything in it.
+   *
+   * @param dir Path, the directory to delete.
+   * @throws IOException if an I/O error occurs while deleting.
+   */
+  public static void deleteRecursively(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (var paths = Files.walk(dir)) {
+      for (Path path : (Iterable<Path>) paths.sorted((a, b) -> b.compareTo(a))::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package FileReader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the rows/sec of the CSVTokenizer behind Reader.parseCSVLine with the regex based
+ * parser it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVParseBenchmark {
+
+  private static final int ROWS = 10_000;
+
+  private String[] lines;
+
+  @Setup
+  public void setUp() {
+    lines = new String[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      lines[i] = "\"First" + i + "\",\"Last" + i + "\",\"Company, Inc " + i + "\",\"" + i
+          + " Main St\",\"New Orleans\",\"Orleans\",\"LA\",\"70116\",\"504-621-8927\","
+          + "\"504-845-1427\",\"user" + i + "@gmail.com\",\"http://www.example" + i + ".com\"";
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void tokenizer(Blackhole bh) {
+    for (String line : lines) {
+      bh.consume(Reader.parseCSVLine(line));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void regexBaseline(Blackhole bh) {
+    for (String line : lines) {
+      bh.consume(regexParseCSVLine(line));
+    }
+  }
+
+  /**
+   * The regex parser Reader.parseCSVLine used before the tokenizer, kept as the baseline.
+   */
+  private static List<String> regexParseCSVLine(String line) {
+    List<String> values = new ArrayList<>();
+    Pattern pattern = Pattern.compile("\"([^\"]*?)\"");
+    Matcher matcher = pattern.matcher(line);
+    while (matcher.find()) {
+      values.add(matcher.group(1));
+    }
+    return values;
+  }
+}
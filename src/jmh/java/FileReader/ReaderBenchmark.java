@@ -0,0 +1,123 @@
+package FileReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the read and parse stages over generated CSV files of different sizes, and the
+ * end-to-end Reader.processFiles run with templates of different placeholder counts. Each
+ * invocation processes the whole file, so scores are in milliseconds per file.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReaderBenchmark {
+
+  /** The input of the read and parse benchmarks, which do not depend on a template. */
+  @State(Scope.Benchmark)
+  public static class Csv {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path workDir;
+    private Path csvFile;
+    private List<String> fileContent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      workDir = Files.createTempDirectory("reader-bench");
+      csvFile = workDir.resolve("customers.csv");
+      BenchmarkData.writeCsv(csvFile, rows);
+      fileContent = Reader.readFileContent(csvFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      BenchmarkData.deleteRecursively(workDir);
+    }
+  }
+
+  /**
+   * The input of the end-to-end benchmark. It writes one file per row, so it is kept to sizes at
+   * which an iteration finishes in seconds rather than filling the disk with millions of files.
+   */
+  @State(Scope.Benchmark)
+  public static class Run {
+
+    @Param({"1000", "10000"})
+    public int documents;
+
+    @Param({"3", "12", "30"})
+    public int placeholders;
+
+    private Path workDir;
+    private Path csvFile;
+    private Path templateFile;
+    private Path outputDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      workDir = Files.createTempDirectory("reader-bench");
+      csvFile = workDir.resolve("customers.csv");
+      templateFile = workDir.resolve("template.txt");
+      outputDir = workDir.resolve("out");
+      BenchmarkData.writeCsv(csvFile, documents);
+      Files.writeString(templateFile, BenchmarkData.template(placeholders));
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanOutput() throws IOException {
+      BenchmarkData.deleteRecursively(outputDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      BenchmarkData.deleteRecursively(workDir);
+    }
+  }
+
+  @Benchmark
+  public List<String> readFileContent(Csv csv) throws IOException {
+    return Reader.readFileContent(csv.csvFile.toString());
+  }
+
+  @Benchmark
+  public void parseCSVLine(Csv csv, Blackhole bh) {
+    for (String line : csv.fileContent) {
+      bh.consume(Reader.parseCSVLine(line));
+    }
+  }
+
+  @Benchmark
+  public Object readCSV(Csv csv) throws IOException {
+    return Reader.readCSV(csv.csvFile.toString());
+  }
+
+  @Benchmark
+  public void processFiles(Run run) throws Exception {
+    Reader.processFiles(new String[]{"--email",
+        "--email-template", run.templateFile.toString(),
+        "--output-dir", run.outputDir.toString(),
+        "--csv-file", run.csvFile.toString()});
+  }
+}
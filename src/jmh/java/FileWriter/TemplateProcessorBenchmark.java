@@ -0,0 +1,97 @@
+package FileWriter;
+
+import FileReader.BenchmarkData;
+import FileReader.Reader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the render and write stages for a single row, with templates of different
+ * placeholder counts, rendering to a String and straight to UTF-8 bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateProcessorBenchmark {
+
+  @Param({"3", "12", "30"})
+  public int placeholders;
+
+  private String template;
+  private CompiledTemplate compiled;
+  private List<String> row;
+  private Map<String, Integer> headerMap;
+  private String rendered;
+  private Path outputDir;
+  private String outputFile;
+  private DirectorySink sink;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    template = BenchmarkData.template(placeholders);
+    headerMap = Reader.headerIndex(BenchmarkData.header());
+    compiled = CompiledTemplate.compile(template, headerMap);
+    row = BenchmarkData.row(1);
+    rendered = compiled.render(row);
+    outputDir = Files.createTempDirectory("writer-bench");
+    outputFile = outputDir + File.separator + "email 1.txt";
+    sink = new DirectorySink(outputDir.toString());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    sink.close();
+    BenchmarkData.deleteRecursively(outputDir);
+  }
+
+  @Benchmark
+  public String processTemplate() {
+    return TemplateProcessor.processTemplate(template, row, headerMap);
+  }
+
+  @Benchmark
+  public String renderCompiled() {
+    return compiled.render(row);
+  }
+
+  @Benchmark
+  public int renderUtf8() {
+    return compiled.renderUtf8(row).content().remaining();
+  }
+
+  @Benchmark
+  public void writeOutputFile() throws IOException {
+    TemplateProcessor.writeOutputFile(outputFile, rendered);
+  }
+
+  @Benchmark
+  public void renderAndWriteString() throws IOException {
+    sink.write("email 1.txt", compiled.render(row));
+  }
+
+  @Benchmark
+  public void renderAndWriteUtf8() throws IOException {
+    sink.writeUtf8("email 1.txt", compiled.renderUtf8(row).content());
+  }
+}
@@ -1,6 +1,8 @@
 package CommandLine;
 
+import java.io.File;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.*;
 
@@ -17,6 +19,23 @@ public class CommandLineParser {
   private static final String OUTPUT_DIR = "--output-dir";
 
   private static final String CSV_FILE = "--csv-file";
+  private static final String THREADS = "--threads";
+  private static final String BATCH_SIZE = "--batch-size";
+  private static final int DEFAULT_BATCH_SIZE = 16;
+  private static final String ZIP_COM = "--zip";
+  private static final String STDOUT_COM = "--stdout";
+  private static final String RESUME_COM = "--resume";
+  private static final String INCREMENTAL_COM = "--incremental";
+  private static final String SERVE = "--serve";
+  private static final String WATCH = "--watch";
+  private static final String METRICS_COM = "--metrics";
+  private static final String METRICS_JSON = "--metrics-json";
+  private static final String PROGRESS = "--progress";
+  private static final String SHARD = "--shard";
+  private static final String TEMPLATE_CACHE = "--template-cache";
+  private static final String CSV_CACHE = "--csv-cache";
+  private static final String TEMPLATE = "--template";
+  private static final String TEMPLATE_TYPE_REGEX = "^[A-Za-z0-9_-]+$";
   private static final String FILE_PATH_REGEX ="^(?:[a-zA-Z]:|\\\\\\\\)?(?:\\\\|/[^\\\\/:*?\"<>|]+)+(\\\\|/)?[^\\\\/:*?\"<>|]*\\.(csv|txt)?$";
 
   private static final String FOLDER_PATH_REGEX = "^(?:\\/(?:[^\\/]+\\/)*)(?:[^\\/]+)$";
@@ -25,8 +44,12 @@ public class CommandLineParser {
   //Key: option, Value: if possible, the file to path
   private Map<String, String> optionPath ;
 
+  //Key: type of file to generate, Value: path to its template, in the order given
+  private Map<String, String> templatePath ;
+
   public CommandLineParser(String[] args) throws InvalidArgumentException {
     optionPath = new HashMap<>();
+    templatePath = new LinkedHashMap<>();
 
     this.processArgs(args);
   }
@@ -114,6 +137,168 @@ public class CommandLineParser {
             throw new InvalidArgumentException("Missing value for -- csv file or its path to file");
           }
         }
+        else if (currMeg.equals(ZIP_COM)){
+          optionPath.put(ZIP_COM, "N/A");
+        }
+        else if (currMeg.equals(STDOUT_COM)){
+          optionPath.put(STDOUT_COM, "N/A");
+        }
+        else if (currMeg.equals(RESUME_COM)){
+          optionPath.put(RESUME_COM, "N/A");
+        }
+        else if (currMeg.equals(INCREMENTAL_COM)){
+          optionPath.put(INCREMENTAL_COM, "N/A");
+        }
+        else if (currMeg.equals(TEMPLATE)){
+          if (i+2<args.length){
+            String type = args[i+1];
+            if (!type.matches(TEMPLATE_TYPE_REGEX)){
+              System.out.println("Not valid type of file for "+TEMPLATE);
+            }
+            else if (templatePath.containsKey(type)){
+              System.out.println("Duplicate type of file for "+TEMPLATE+": "+type);
+            }
+            else if (isValidFilePath(args[i+2])){
+              templatePath.put(type, args[i+2]);
+            }
+            else{
+              System.out.println("Not valid path to file for "+TEMPLATE);
+            }
+            i += 2;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- template type or its path to file");
+          }
+        }
+        else if (currMeg.equals(THREADS)){
+          if (i+1<args.length){
+            if (isValidThreadCount(args[i+1])){
+              optionPath.put(THREADS, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid number of threads for "+THREADS);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- threads or its number of threads");
+          }
+        }
+        else if (currMeg.equals(BATCH_SIZE)){
+          if (i+1<args.length){
+            if (isValidBatchSize(args[i+1])){
+              optionPath.put(BATCH_SIZE, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid number of rows for "+BATCH_SIZE);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- batch size or its number of rows");
+          }
+        }
+        else if (currMeg.equals(TEMPLATE_CACHE)){
+          if (i+1<args.length){
+            if (isValidFolderPath(args[i+1])){
+              optionPath.put(TEMPLATE_CACHE, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid path to folder for "+TEMPLATE_CACHE);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- template cache or its path to folder");
+          }
+        }
+        else if (currMeg.equals(CSV_CACHE)){
+          if (i+1<args.length){
+            if (isValidFolderPath(args[i+1])){
+              optionPath.put(CSV_CACHE, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid path to folder for "+CSV_CACHE);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- csv cache or its path to folder");
+          }
+        }
+        else if (currMeg.equals(METRICS_COM)){
+          optionPath.put(METRICS_COM, "N/A");
+        }
+        else if (currMeg.equals(METRICS_JSON)){
+          if (i+1<args.length){
+            if (isValidOutputFilePath(args[i+1])){
+              optionPath.put(METRICS_JSON, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid path to file for "+METRICS_JSON);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- metrics json or its path to file");
+          }
+        }
+        else if (currMeg.equals(PROGRESS)){
+          if (i+1<args.length){
+            if (isValidSeconds(args[i+1])){
+              optionPath.put(PROGRESS, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid number of seconds for "+PROGRESS);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- progress or its number of seconds");
+          }
+        }
+        else if (currMeg.equals(SHARD)){
+          if (i+1<args.length){
+            if (isValidShard(args[i+1])){
+              optionPath.put(SHARD, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid shard for "+SHARD);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- shard or its k/n");
+          }
+        }
+        else if (currMeg.equals(WATCH)){
+          if (i+1<args.length){
+            if (isValidFolderPath(args[i+1])){
+              optionPath.put(WATCH, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid path to folder for "+WATCH);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- watch or its path to folder");
+          }
+        }
+        else if (currMeg.equals(SERVE)){
+          if (i+1<args.length){
+            if (isValidPort(args[i+1])){
+              optionPath.put(SERVE, args[i+1]);
+            }
+            else{
+              System.out.println("Not valid port for "+SERVE);
+            }
+            i++;
+          }
+          else{
+            throw new InvalidArgumentException("Missing value for -- serve or its port");
+          }
+        }
         else{
           System.out.println("Invalid option, please re-enter");
 
@@ -149,6 +334,80 @@ public class CommandLineParser {
     return optionPath;
   }
 
+  /**
+   * Get the templates given with --template
+   * @return Map<> templatePath, key: type of file to generate, value: path to its template
+   */
+  public Map<String, String> getTemplatePath() {
+    return templatePath;
+  }
+
+  /**
+   * Get the number of worker threads requested with --threads
+   * @return int, the number of threads, 1 if the option was not given
+   */
+  public int getThreads(){
+    if (!hasOption(THREADS)){
+      return 1;
+    }
+    return Integer.parseInt(optionPath.get(THREADS));
+  }
+
+  /**
+   * Get the number of rows handed to a worker thread at a time, given with --batch-size
+   * @return int, the number of rows, 16 if the option was not given
+   */
+  public int getBatchSize(){
+    if (!hasOption(BATCH_SIZE)){
+      return DEFAULT_BATCH_SIZE;
+    }
+    return Integer.parseInt(optionPath.get(BATCH_SIZE));
+  }
+
+  /**
+   * Get which of the shards this run generates, given with --shard k/n
+   * @return int, k, the shard numbered from 1, 1 if the option was not given
+   */
+  public int getShardIndex(){
+    if (!hasOption(SHARD)){
+      return 1;
+    }
+    return Integer.parseInt(optionPath.get(SHARD).split("/")[0]);
+  }
+
+  /**
+   * Get how many shards the rows are split into, given with --shard k/n
+   * @return int, n, the number of shards, 1 if the option was not given
+   */
+  public int getShardCount(){
+    if (!hasOption(SHARD)){
+      return 1;
+    }
+    return Integer.parseInt(optionPath.get(SHARD).split("/")[1]);
+  }
+
+  /**
+   * Get the interval between two progress lines, given with --progress
+   * @return int, the number of seconds, 0 if the option was not given
+   */
+  public int getProgressSeconds(){
+    if (!hasOption(PROGRESS)){
+      return 0;
+    }
+    return Integer.parseInt(optionPath.get(PROGRESS));
+  }
+
+  /**
+   * Get the port the job server listens on, given with --serve
+   * @return int, the port, or -1 if the option was not given
+   */
+  public int getPort(){
+    if (!hasOption(SERVE)){
+      return -1;
+    }
+    return Integer.parseInt(optionPath.get(SERVE));
+  }
+
   /**
    * Helper method for printing the instruction of the program
    */
@@ -161,6 +420,21 @@ public class CommandLineParser {
             "--email-template <path/to/file> A filename for the email template. --letter Generate letters. If this option is provided, then --letter- template must also be provided." + System.lineSeparator() +
             "--letter-template <path/to/file> A filename for the letter template. --output-dir <path/to/folder> The folder to store all generated files. This option is required." + System.lineSeparator() +
             "--csv-file <path/to/folder> The CSV file to process. This option is required." + System.lineSeparator() +
+            "--template <type> <path/to/file> Generate files of the given type (e.g. reminder) from the template. May be repeated." + System.lineSeparator() +
+            "--incremental Only regenerate files whose row or template changed since the last run, and remove files of rows that are gone." + System.lineSeparator() +
+            "--resume Record progress in the output folder and, after a crash, continue from the first unfinished row." + System.lineSeparator() +
+            "--serve <port> Stay running and take jobs on localhost:<port>, one line of the options above per job. --threads sets how many jobs run at once." + System.lineSeparator() +
+            "--watch <path/to/folder> Stay running and generate files for every CSV file dropped into the folder, each into its own folder under --output-dir. --threads sets how many CSV files are processed at once, each on one thread." + System.lineSeparator() +
+            "--template-cache <path/to/folder> Keep the scanned layout of every template in the folder, so later runs with the same templates skip scanning them." + System.lineSeparator() +
+            "--csv-cache <path/to/folder> Keep a binary copy of the parsed CSV file in the folder, so later runs over the unchanged file skip parsing it." + System.lineSeparator() +
+            "--metrics Print how long each stage took at the end of the run." + System.lineSeparator() +
+            "--metrics-json <path/to/file> Also save the metrics of the run as JSON." + System.lineSeparator() +
+            "--progress <seconds> Print a progress line every given number of seconds." + System.lineSeparator() +
+            "--shard <k/n> Only generate every n-th row starting at row k, so n runs on one or more machines can share a CSV file. Files keep the numbers of their rows." + System.lineSeparator() +
+            "--threads <number> The number of worker threads used to generate files. Defaults to 1." + System.lineSeparator() +
+            "--batch-size <number> With --threads, the number of rows handed to a worker thread at a time. Defaults to 16." + System.lineSeparator() +
+            "--zip Write all generated files into a single documents.zip in the output folder." + System.lineSeparator() +
+            "--stdout Write all generated files to standard output instead of a folder. --output-dir is then not required." + System.lineSeparator() +
             "Examples:" + System.lineSeparator() +
             "--email --email-template email-template.txt --output-dir emails -- csv-file customer.csv" + System.lineSeparator() +
             "--letter --letter-template letter-template.txt --output-dir letters - -csv-file customer.csv");
@@ -183,12 +457,12 @@ public class CommandLineParser {
       printInstruction();
       return false;
     }
-    else if (!parser.hasOption("--email") &&!parser.hasOption("--letter")){
-      System.out.println("Incorrect: --email and --letter are missing!");
+    else if (!parser.hasOption("--email") &&!parser.hasOption("--letter") && parser.getTemplatePath().isEmpty()){
+      System.out.println("Incorrect: --email, --letter and --template are missing!");
       printInstruction();
       return false;
     }
-    else if (!parser.hasOption("--output-dir")){
+    else if (!parser.hasOption("--output-dir") && !parser.hasOption("--stdout")){
       System.out.println("Incorrect: --output-dir is missing");
       printInstruction();
       return false;
@@ -229,5 +503,86 @@ public class CommandLineParser {
     return matcher.matches();
   }
 
+  /**
+   * Helper method for checking if the path to a file that will be written is valid: an absolute
+   * unix style path whose folder either exists or can be created, i.e. the nearest part of it
+   * that exists is a folder
+   * @param filePath : String of unix style path to the file
+   * @return boolean value
+   */
+  public static boolean isValidOutputFilePath(String filePath){
+    if (!isValidFolderPath(filePath)){
+      return false;
+    }
+    File folder = new File(filePath).getParentFile();
+    while (folder != null && !folder.exists()){
+      folder = folder.getParentFile();
+    }
+    return folder != null && folder.isDirectory() && !new File(filePath).isDirectory();
+  }
+
+  /**
+   * Helper method for checking if the number of threads is a positive integer
+   * @param threads : String of the number of threads
+   * @return boolean value
+   */
+  public static boolean isValidThreadCount(String threads){
+    if (threads==null || !threads.matches("\\d{1,4}")){
+      return false;
+    }
+    return Integer.parseInt(threads) > 0;
+  }
+
+  /**
+   * Helper method for checking if the number of rows in a batch is a positive integer
+   * @param batchSize : String of the number of rows
+   * @return boolean value
+   */
+  public static boolean isValidBatchSize(String batchSize){
+    if (batchSize==null || !batchSize.matches("\\d{1,6}")){
+      return false;
+    }
+    return Integer.parseInt(batchSize) > 0;
+  }
+
+  /**
+   * Helper method for checking if the number of seconds is a positive integer
+   * @param seconds : String of the number of seconds
+   * @return boolean value
+   */
+  public static boolean isValidSeconds(String seconds){
+    if (seconds==null || !seconds.matches("\\d{1,5}")){
+      return false;
+    }
+    return Integer.parseInt(seconds) > 0;
+  }
+
+  /**
+   * Helper method for checking if the shard is k/n with 1 <= k <= n
+   * @param shard : String of the shard
+   * @return boolean value
+   */
+  public static boolean isValidShard(String shard){
+    if (shard==null || !shard.matches("\\d{1,4}/\\d{1,4}")){
+      return false;
+    }
+    String[] parts = shard.split("/");
+    int index = Integer.parseInt(parts[0]);
+    return index >= 1 && index <= Integer.parseInt(parts[1]);
+  }
+
+  /**
+   * Helper method for checking if the port is a number from 1 to 65535
+   * @param port : String of the port
+   * @return boolean value
+   */
+  public static boolean isValidPort(String port){
+    if (port==null || !port.matches("\\d{1,5}")){
+      return false;
+    }
+    int value = Integer.parseInt(port);
+    return value > 0 && value <= 65535;
+  }
+
 
 }
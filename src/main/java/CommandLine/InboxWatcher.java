@@ -0,0 +1,231 @@
+package CommandLine;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import FileReader.Reader;
+import FileReader.TemplateCache;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches an inbox folder and generates files for every CSV file dropped into it, as soon as the
+ * file has stopped changing. Each CSV file is processed by the usual Reader.processFiles
+ * pipeline with the options the watcher was started with; its files go to a folder named after
+ * the CSV file inside the output folder. Afterwards the CSV file is moved to the processed or
+ * the failed folder of the inbox, so a restarted watcher only picks up files it has not seen.
+ *
+ * <p>Up to the given number of CSV files are processed at the same time, each on one thread.
+ * Files waiting for a free thread are held in a bounded queue; when it is full the watcher waits,
+ * instead of piling up work. A producer that writes a CSV file slowly should write it under
+ * another name and rename it to .csv when it is complete.
+ */
+public class InboxWatcher implements AutoCloseable {
+
+  /** The folder of the inbox that successfully processed CSV files are moved to. */
+  public static final String PROCESSED_DIR = "processed";
+  /** The folder of the inbox that CSV files which could not be processed are moved to. */
+  public static final String FAILED_DIR = "failed";
+  /** How long a CSV file must go without changes before it is processed. */
+  public static final long SETTLE_MILLIS = 500;
+
+  private final Path inbox;
+  private final String outputDir;
+  private final String[] jobArgs;
+  private final WatchService watchService;
+  private final ThreadPoolExecutor jobs;
+  private final TemplateCache cache = new TemplateCache(TemplateCache.DEFAULT_CAPACITY);
+  // Key: CSV file seen in the inbox, Value: time of the last change to it
+  private final Map<Path, Long> pending = new LinkedHashMap<>();
+  // CSV files handed to the threads and not yet moved out of the inbox
+  private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Starts watching the inbox folder.
+   *
+   * @param inbox     String, the folder CSV files are dropped into.
+   * @param outputDir String, the folder the generated files are saved under.
+   * @param jobArgs   String[], the template options used for every CSV file.
+   * @param threads   int, the number of CSV files processed at the same time.
+   * @throws IOException if the inbox cannot be watched.
+   */
+  public InboxWatcher(String inbox, String outputDir, String[] jobArgs, int threads)
+      throws IOException {
+    this.inbox = Path.of(inbox);
+    this.outputDir = outputDir;
+    this.jobArgs = jobArgs;
+    Files.createDirectories(this.inbox.resolve(PROCESSED_DIR));
+    Files.createDirectories(this.inbox.resolve(FAILED_DIR));
+    this.watchService = this.inbox.getFileSystem().newWatchService();
+    this.inbox.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    this.jobs = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(threads * 4), (job, executor) -> {
+          // Wait for room in the queue instead of rejecting the CSV file.
+          try {
+            executor.getQueue().put(job);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+          }
+        });
+  }
+
+  /**
+   * Processes the CSV files already in the inbox, then every CSV file dropped into it, until
+   * the watcher is closed or the thread is interrupted.
+   *
+   * @throws IOException if the inbox cannot be listed.
+   */
+  public void watch() throws IOException {
+    scanInbox();
+    try {
+      while (true) {
+        WatchKey key = watchService.poll(SETTLE_MILLIS / 5, TimeUnit.MILLISECONDS);
+        if (key != null) {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+              scanInbox();
+            } else {
+              changed(inbox.resolve((Path) event.context()));
+            }
+          }
+          key.reset();
+        }
+        dispatchSettled();
+      }
+    } catch (ClosedWatchServiceException e) {
+      // The watcher was closed.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void scanInbox() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(inbox)) {
+      for (Path file : files) {
+        changed(file);
+      }
+    }
+  }
+
+  private void changed(Path file) {
+    String name = file.getFileName().toString();
+    if (name.endsWith(".csv") && !name.startsWith(".") && Files.isRegularFile(file)) {
+      pending.put(file, System.currentTimeMillis());
+    }
+  }
+
+  private void dispatchSettled() {
+    long now = System.currentTimeMillis();
+    List<Path> settled = new ArrayList<>();
+    for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Path, Long> entry = it.next();
+      if (now - entry.getValue() >= SETTLE_MILLIS) {
+        settled.add(entry.getKey());
+        it.remove();
+      }
+    }
+    for (Path csv : settled) {
+      if (queued.add(csv)) {
+        jobs.execute(() -> process(csv));
+      }
+    }
+  }
+
+  /**
+   * Generates the files for one CSV file and moves it out of the inbox.
+   *
+   * @param csv Path, the CSV file in the inbox.
+   */
+  private void process(Path csv) {
+    try {
+      if (Files.exists(csv)) {
+        generate(csv);
+      }
+    } finally {
+      queued.remove(csv);
+    }
+  }
+
+  private void generate(Path csv) {
+    String name = csv.getFileName().toString();
+    String[] args = Arrays.copyOf(jobArgs, jobArgs.length + 4);
+    args[jobArgs.length] = "--output-dir";
+    args[jobArgs.length + 1] = outputDir + File.separator + name.substring(0, name.length() - 4);
+    args[jobArgs.length + 2] = "--csv-file";
+    args[jobArgs.length + 3] = csv.toAbsolutePath().toString();
+
+    String folder = FAILED_DIR;
+    try {
+      if (Reader.processFiles(args, cache)) {
+        folder = PROCESSED_DIR;
+      }
+    } catch (InvalidArgumentException | IOException | RuntimeException e) {
+      System.out.println("Failed to process " + name + ": " + e.getMessage());
+    }
+    try {
+      Files.move(csv, inbox.resolve(folder).resolve(name), StandardCopyOption.REPLACE_EXISTING);
+      System.out.println("Moved " + name + " to " + folder);
+    } catch (IOException e) {
+      System.out.println("Failed to move " + name + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Removes the options that the watcher sets itself for every job from a command line. --threads
+   * is removed as well: it sets how many CSV files are processed at once, and passing it on would
+   * give each of them that many threads again.
+   *
+   * @param args String[], the command line the watcher was started with.
+   * @return String[], the options shared by all jobs.
+   */
+  public static String[] jobArguments(String[] args) {
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--watch") || args[i].equals("--output-dir")
+          || args[i].equals("--csv-file") || args[i].equals("--threads")) {
+        i++;
+      } else {
+        result.add(args[i]);
+      }
+    }
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Stops watching and waits for the CSV files already handed to the threads.
+   *
+   * @throws IOException if the watch service cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+    jobs.shutdown();
+    try {
+      jobs.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package CommandLine;
+
+import FileReader.Reader;
+import FileReader.TemplateCache;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the tool resident so that small batches do not each pay for JVM start-up, JIT warm-up
+ * and reading and compiling their templates. The server listens on a port of the loopback
+ * interface only. A client sends one job per line, written exactly like the command line of a
+ * single run, e.g. --email --email-template /t/email.txt --output-dir /out --csv-file /in.csv;
+ * an argument containing spaces is wrapped in double quotes. For every job the server answers
+ * with one line: OK, INVALID if the arguments were rejected, or FAILED followed by the error.
+ * The line SHUTDOWN stops the server: it stops accepting connections, closes the connections
+ * waiting for their next job, and returns from serve once the jobs already running are done.
+ *
+ * <p>Each connection is served by one of a fixed number of threads, so that many jobs from
+ * different clients run at the same time. Templates are shared by all jobs through a
+ * TemplateCache.
+ */
+public class JobServer implements AutoCloseable {
+
+  /** The line a client sends to stop the server. */
+  public static final String SHUTDOWN = "SHUTDOWN";
+
+  private final ServerSocket serverSocket;
+  private final ExecutorService connections;
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+  private final TemplateCache cache = new TemplateCache(TemplateCache.DEFAULT_CAPACITY);
+
+  /**
+   * Opens the server socket on the loopback interface.
+   *
+   * @param port    int, the port to listen on, or 0 to pick a free one.
+   * @param threads int, the number of connections served at the same time.
+   * @throws IOException if the port cannot be bound.
+   */
+  public JobServer(int port, int threads) throws IOException {
+    this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    this.connections = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "job-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Gets the port the server is listening on.
+   *
+   * @return int, the local port.
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Gets the cache of templates shared by the jobs.
+   *
+   * @return TemplateCache of the server.
+   */
+  public TemplateCache getTemplateCache() {
+    return cache;
+  }
+
+  /**
+   * Accepts connections until the server is closed or a client sends SHUTDOWN, then waits for
+   * the jobs still running.
+   *
+   * @throws IOException if accepting a connection fails for another reason.
+   */
+  public void serve() throws IOException {
+    while (!serverSocket.isClosed()) {
+      Socket client;
+      try {
+        client = serverSocket.accept();
+      } catch (SocketException e) {
+        if (serverSocket.isClosed()) {
+          break;
+        }
+        throw e;
+      }
+      try {
+        connections.execute(() -> handle(client));
+      } catch (RejectedExecutionException e) {
+        // Accepted just as the server was stopped.
+        client.close();
+      }
+    }
+    awaitJobs();
+  }
+
+  /**
+   * Runs the jobs sent on one connection, one after the other, answering each of them.
+   *
+   * @param client Socket, the accepted connection.
+   */
+  private void handle(Socket client) {
+    try (Socket socket = client;
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+      clients.add(socket);
+      if (serverSocket.isClosed()) {
+        // Stopped before this connection could be told to close.
+        return;
+      }
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        if (line.trim().equals(SHUTDOWN)) {
+          out.println("OK");
+          stop();
+          return;
+        }
+        out.println(runJob(splitArguments(line)));
+      }
+    } catch (IOException e) {
+      System.out.println("Connection failed: " + e.getMessage());
+    } finally {
+      clients.remove(client);
+    }
+  }
+
+  private String runJob(String[] args) {
+    try {
+      return Reader.processFiles(args, cache) ? "OK" : "INVALID";
+    } catch (InvalidArgumentException e) {
+      return "INVALID " + e.getMessage();
+    } catch (IOException | RuntimeException e) {
+      return "FAILED " + e.getMessage();
+    }
+  }
+
+  /**
+   * Splits a job line into arguments at spaces, keeping text in double quotes together.
+   *
+   * @param line String, the job line.
+   * @return String[] of the arguments.
+   */
+  public static String[] splitArguments(String line) {
+    List<String> args = new ArrayList<>();
+    StringBuilder current = new StringBuilder();
+    boolean quoted = false;
+    boolean inArgument = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+        inArgument = true;
+      } else if (Character.isWhitespace(c) && !quoted) {
+        if (inArgument) {
+          args.add(current.toString());
+          current.setLength(0);
+          inArgument = false;
+        }
+      } else {
+        current.append(c);
+        inArgument = true;
+      }
+    }
+    if (inArgument) {
+      args.add(current.toString());
+    }
+    return args.toArray(new String[0]);
+  }
+
+  /**
+   * Stops accepting connections and jobs. Connections waiting for their next job see the end of
+   * their input and close; a connection running a job closes once the job is answered. Safe to
+   * call from a connection, as it does not wait for the jobs.
+   *
+   * @throws IOException if the server socket cannot be closed.
+   */
+  private void stop() throws IOException {
+    serverSocket.close();
+    connections.shutdown();
+    for (Socket client : clients) {
+      try {
+        client.shutdownInput();
+      } catch (IOException e) {
+        // Already closed by the client.
+      }
+    }
+  }
+
+  /**
+   * Waits until every connection thread has finished, so no job is cut off while it writes files.
+   *
+   * @throws IOException if the wait is interrupted.
+   */
+  private void awaitJobs() throws IOException {
+    try {
+      while (!connections.awaitTermination(1, TimeUnit.MINUTES)) {
+        System.out.println("Waiting for running jobs to finish");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for running jobs");
+    }
+  }
+
+  /**
+   * Stops the server and waits for the jobs still running.
+   *
+   * @throws IOException if the server socket cannot be closed or the wait is interrupted.
+   */
+  @Override
+  public void close() throws IOException {
+    stop();
+    awaitJobs();
+  }
+}
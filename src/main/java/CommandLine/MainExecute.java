@@ -1,9 +1,34 @@
 package CommandLine;
 import FileReader.Reader;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class MainExecute {
     public static void main(String[] args) throws InvalidArgumentException, IOException {
+      if (Arrays.asList(args).contains("--serve")) {
+        CommandLineParser parser = new CommandLineParser(args);
+        if (parser.hasOption("--serve")) {
+          try (JobServer server = new JobServer(parser.getPort(), parser.getThreads())) {
+            System.out.println("Waiting for jobs on localhost:" + server.getPort());
+            server.serve();
+          }
+        }
+        return;
+      }
+      if (Arrays.asList(args).contains("--watch")) {
+        CommandLineParser parser = new CommandLineParser(args);
+        if (parser.hasOption("--watch") && parser.hasOption("--output-dir")) {
+          try (InboxWatcher watcher = new InboxWatcher(parser.getPath("--watch"),
+              parser.getPath("--output-dir"), InboxWatcher.jobArguments(args), parser.getThreads())) {
+            System.out.println("Watching " + parser.getPath("--watch") + " for CSV files");
+            watcher.watch();
+          }
+        }
+        else {
+          System.out.println("Incorrect: --watch needs a valid --output-dir");
+        }
+        return;
+      }
       Reader.processFiles(args);
     }
   }
@@ -0,0 +1,67 @@
+package FileReader;
+
+import FileWriter.TemplateProcessor;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for a chunk of consecutive CSV rows that has been parsed. When a
+ * file is streamed, a chunk ends at every checkpoint of the reader and its duration covers
+ * reading the rows and handing them on; Reader.parseCSVContent reports its whole input as one
+ * chunk.
+ */
+@Name("FileReader.CSVChunkParsed")
+@Label("CSV Chunk Parsed")
+@Category("Document Generation")
+@Description("Consecutive CSV rows read and parsed")
+public class CSVChunkParsedEvent extends jdk.jfr.Event {
+
+  @Label("First Row")
+  @Description("Number of the first row of the chunk")
+  int firstRow;
+
+  @Label("Rows")
+  @Description("Number of rows in the chunk")
+  int rows;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  /**
+   * Ends the event and commits it if it is being recorded.
+   *
+   * @param firstRow int, the number of the first row of the chunk.
+   * @param rows     int, the number of rows in the chunk.
+   * @param bytes    long, the size of the chunk in the CSV file.
+   */
+  void finish(int firstRow, int rows, long bytes) {
+    end();
+    if (shouldCommit()) {
+      this.firstRow = firstRow;
+      this.rows = rows;
+      this.bytes = bytes;
+      commit();
+    }
+  }
+
+  /**
+   * Ends the event and commits it if it is being recorded. The size is only computed then.
+   *
+   * @param firstRow int, the number of the first row of the chunk.
+   * @param rows     int, the number of rows in the chunk.
+   * @param content  CharSequence, the text of the chunk.
+   */
+  void finish(int firstRow, int rows, CharSequence content) {
+    end();
+    if (shouldCommit()) {
+      this.firstRow = firstRow;
+      this.rows = rows;
+      this.bytes = TemplateProcessor.utf8Length(content);
+      commit();
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package FileReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A RowSource reading a UTF-8 CSV file. Small files go through a CSVTokenizer, files of
+ * MAPPED_THRESHOLD bytes or more through a MappedCSVReader. With a parallelism above one, files of
+ * PARALLEL_THRESHOLD bytes or more are parsed by a ParallelCSVReader instead. All of them honour a
+ * column projection, can start at a later row given its byte offset (the header is always read
+ * first), and call RowHandler.checkpoint with the offset of the next record, every
+ * CHECKPOINT_INTERVAL rows or, when parsing in parallel, at the end of every chunk. While
+ * a flight recording is running, the rows between two checkpoints are reported as a
+ * CSVChunkParsedEvent. Given a cache file, rows are read from a ColumnarCache built from the
+ * file instead, and a run reading the whole file without a usable cache builds one.
+ */
+public class CSVSource implements RowSource {
+
+  /** CSV files of at least this many bytes are memory-mapped instead of read through a Reader. */
+  public static final long MAPPED_THRESHOLD = 32L << 20;
+
+  /** CSV files of at least this many bytes are parsed on several threads when allowed to. */
+  public static final long PARALLEL_THRESHOLD = 8L << 20;
+
+  /** The number of rows between two checkpoints. */
+  public static final int CHECKPOINT_INTERVAL = 10_000;
+
+  private final String filePath;
+  private Set<String> columns;
+  private int startRow = 1;
+  private long startOffset;
+  private int parallelism = 1;
+  private Path cacheFile;
+  private PrintStream console = System.out;
+  private int rowsRead;
+
+  /**
+   * Creates a source for the given file.
+   *
+   * @param filePath String representing the path to the CSV file.
+   */
+  public CSVSource(String filePath) {
+    this.filePath = filePath;
+  }
+
+  /**
+   * Restricts the columns that are materialized after the header.
+   *
+   * @param columns Set<String> of header values whose columns are needed, or null for all.
+   */
+  public void setColumns(Set<String> columns) {
+    this.columns = columns;
+  }
+
+  /**
+   * Makes the source skip straight to a later row after the header has been read.
+   *
+   * @param row    int, the number of the first data row to read.
+   * @param offset long, the byte offset in the file where that row starts.
+   */
+  public void setStart(int row, long offset) {
+    this.startRow = row;
+    this.startOffset = offset;
+  }
+
+  /**
+   * Lets large files be parsed on several threads.
+   *
+   * @param parallelism int, the number of threads parsing the file; 1 parses on the caller, as
+   *                    does a machine with a single processor.
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Reads the rows from a ColumnarCache of the file while it matches the file, and builds the
+   * cache while reading the whole file otherwise.
+   *
+   * @param cacheFile Path of the cache file, or null to always parse the file.
+   */
+  public void setCache(Path cacheFile) {
+    this.cacheFile = cacheFile;
+  }
+
+  /**
+   * Sets where notices about the cache are printed, so they stay out of documents written to
+   * standard output.
+   *
+   * @param console PrintStream the notices are printed to.
+   */
+  public void setConsole(PrintStream console) {
+    this.console = console;
+  }
+
+  /**
+   * Gets the number of the row after the last one read, i.e. the number of rows including the
+   * header when the file was read from the start.
+   *
+   * @return int, the number of rows read.
+   */
+  public int getRowsRead() {
+    return rowsRead;
+  }
+
+  @Override
+  public void forEachRow(RowHandler handler) throws IOException {
+    long length = new File(filePath).length();
+    // Only pay for the extra indirection while chunk events are being recorded.
+    ChunkEvents chunks = new CSVChunkParsedEvent().isEnabled()
+        ? new ChunkEvents(handler, startRow, startOffset) : null;
+    RowHandler target = chunks == null ? handler : chunks;
+    if (cacheFile != null) {
+      rowsRead = readCached(target, length);
+    } else {
+      rowsRead = parse(target, length, columns);
+    }
+    if (rowsRead == 0) {
+      throw new IllegalArgumentException("CSV file is empty");
+    }
+    if (chunks != null) {
+      chunks.endChunk(rowsRead, length);
+    }
+  }
+
+  /**
+   * Reads the rows from the cache file if it matches the CSV file. Otherwise parses the file with
+   * every column materialized, so the rows can be cached, and saves the cache unless the run
+   * starts at a later row or the file changed while it was read.
+   *
+   * @param handler RowHandler receiving each row together with its row number.
+   * @param length  long, the size of the file in bytes.
+   * @return int, the number of the row after the last one read.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  private int readCached(RowHandler handler, long length) throws IOException {
+    Path csvFile = Paths.get(filePath);
+    ColumnarCache cache = ColumnarCache.open(cacheFile, csvFile);
+    if (cache != null) {
+      return cache.forEachRow(handler, columns, startRow);
+    }
+    if (startRow > 1) {
+      return parse(handler, length, columns);
+    }
+    long modified = Files.getLastModifiedTime(csvFile).toMillis();
+    long checksum = ColumnarCache.checksum(csvFile);
+    Path folder = cacheFile.toAbsolutePath().getParent();
+    try (ColumnarCache.Builder builder = new ColumnarCache.Builder(handler, folder)) {
+      int rows = parse(builder, length, null);
+      try {
+        if (rows > 0 && !builder.write(cacheFile, csvFile, length, modified, checksum)) {
+          console.println("Not caching " + csvFile.getFileName() + ", it changed while it was read");
+        }
+      } catch (IOException e) {
+        console.println("Could not write the CSV cache " + cacheFile + ": " + e.getMessage());
+      }
+      return rows;
+    }
+  }
+
+  /**
+   * Parses the file with the reader suited to its size.
+   *
+   * @param handler RowHandler receiving each parsed row together with its row number.
+   * @param length  long, the size of the file in bytes.
+   * @param columns Set<String> of header values whose columns are materialized, or null for all.
+   * @return int, the number of the row after the last one read.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  private int parse(RowHandler handler, long length, Set<String> columns) throws IOException {
+    if (parallelism > 1 && length >= PARALLEL_THRESHOLD
+        && Runtime.getRuntime().availableProcessors() > 1) {
+      ParallelCSVReader reader = new ParallelCSVReader(filePath, columns, parallelism);
+      reader.setStart(startRow, startOffset);
+      return reader.stream(handler);
+    }
+    if (length >= MAPPED_THRESHOLD) {
+      MappedCSVReader reader = new MappedCSVReader(filePath, columns);
+      reader.setStart(startRow, startOffset);
+      reader.setCheckpointInterval(CHECKPOINT_INTERVAL);
+      return reader.stream(handler);
+    }
+    return tokenize(handler, columns);
+  }
+
+  /**
+   * Passes rows on to a handler and reports the rows between two checkpoints as a
+   * CSVChunkParsedEvent.
+   */
+  private static final class ChunkEvents implements RowHandler {
+    private final RowHandler handler;
+    private CSVChunkParsedEvent event = new CSVChunkParsedEvent();
+    private int firstRow;
+    private long firstOffset;
+
+    private ChunkEvents(RowHandler handler, int firstRow, long firstOffset) {
+      this.handler = handler;
+      this.firstRow = firstRow;
+      this.firstOffset = firstOffset;
+      event.begin();
+    }
+
+    @Override
+    public void handle(int rowNumber, List<String> row) throws IOException {
+      handler.handle(rowNumber, row);
+    }
+
+    @Override
+    public void checkpoint(int nextRow, long byteOffset) throws IOException {
+      endChunk(nextRow, byteOffset);
+      handler.checkpoint(nextRow, byteOffset);
+    }
+
+    private void endChunk(int nextRow, long byteOffset) {
+      if (nextRow > firstRow) {
+        event.finish(firstRow, nextRow - firstRow, byteOffset - firstOffset);
+        event = new CSVChunkParsedEvent();
+        event.begin();
+        firstRow = nextRow;
+        firstOffset = byteOffset;
+      }
+    }
+  }
+
+  /**
+   * Reads the file through a CSVTokenizer.
+   *
+   * @param handler RowHandler receiving each parsed row together with its row number.
+   * @param columns Set<String> of header values whose columns are materialized, or null for all.
+   * @return int, the number of the row after the last one read.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  private int tokenize(RowHandler handler, Set<String> columns) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      CSVTokenizer tokenizer = new CSVTokenizer(Channels.newReader(channel, StandardCharsets.UTF_8));
+      List<String> header = tokenizer.nextRecord();
+      if (header == null) {
+        return 0;
+      }
+      if (columns != null) {
+        tokenizer.setWantedColumns(Reader.projectColumns(columns, Reader.headerIndex(header), header.size()));
+      }
+      handler.handle(0, header);
+
+      int rowNum = 1;
+      long base = 0;
+      if (startRow > 1) {
+        channel.position(startOffset);
+        boolean[] wanted = tokenizer.getWantedColumns();
+        tokenizer = new CSVTokenizer(Channels.newReader(channel, StandardCharsets.UTF_8));
+        tokenizer.setWantedColumns(wanted);
+        rowNum = startRow;
+        base = startOffset;
+      }
+
+      List<String> values;
+      while ((values = tokenizer.nextRecord()) != null) {
+        handler.handle(rowNum, values);
+        rowNum++;
+        if (rowNum % CHECKPOINT_INTERVAL == 0) {
+          handler.checkpoint(rowNum, base + tokenizer.getBytePosition());
+        }
+      }
+      return rowNum;
+    }
+  }
+}
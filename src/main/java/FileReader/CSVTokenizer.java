@@ -0,0 +1,260 @@
+package FileReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single-pass, RFC 4180 style CSV tokenizer. It reads characters straight from a buffer and
+ * walks them with a small state machine, so no regex is built per line and the only objects
+ * allocated per record are the list and the field strings it returns.
+ *
+ * <p>Fields may be quoted or unquoted. Inside quotes, a doubled quote ("") stands for one quote
+ * character, and commas and line breaks are part of the field. Line breaks may be LF or CRLF; a
+ * CRLF is returned as a single LF. A blank line is returned as a record with no fields.
+ *
+ * <p>A column projection can be set after the header has been read; fields of columns outside the
+ * projection are skipped without being copied and are returned as null. Fields of columns that
+ * repeat a few values are shared through a ColumnInterner instead of copied for every record.
+ */
+public class CSVTokenizer {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int START_FIELD = 0;
+  private static final int UNQUOTED = 1;
+  private static final int QUOTED = 2;
+  private static final int QUOTE_IN_QUOTED = 3;
+
+  private final java.io.Reader in;
+  private final char[] buffer;
+  private final StringBuilder field = new StringBuilder();
+  private final ColumnInterner interner;
+  private int pos;
+  private int limit;
+  private boolean[] wanted;
+  private long bytePosition;
+
+  /**
+   * Creates a tokenizer over the given character stream.
+   *
+   * @param in java.io.Reader to read CSV content from.
+   */
+  public CSVTokenizer(java.io.Reader in) {
+    this.in = in;
+    this.buffer = new char[BUFFER_SIZE];
+    this.interner = new ColumnInterner();
+  }
+
+  /**
+   * Creates a tokenizer over characters already in memory, for parsing a single line. Fields are
+   * not interned, as sharing values only pays off across many records.
+   *
+   * @param chars char[] holding the content; it becomes the buffer and is never refilled.
+   */
+  private CSVTokenizer(char[] chars) {
+    this.in = null;
+    this.buffer = chars;
+    this.interner = null;
+    this.limit = chars.length;
+  }
+
+  /**
+   * Parses a single CSV line (or a fragment holding several records, of which only the first is
+   * returned) with the same state machine as nextRecord, run over the characters of the line.
+   *
+   * @param line String representing a line of CSV content.
+   * @return List<String> containing the parsed values, empty for an empty line.
+   */
+  public static List<String> parseLine(String line) {
+    try {
+      List<String> record = new CSVTokenizer(line.toCharArray()).nextRecord();
+      return record == null ? new ArrayList<>() : record;
+    } catch (IOException e) {
+      throw new IllegalStateException("Reading from a String cannot fail", e);
+    }
+  }
+
+  /**
+   * Restricts which fields are materialized in the records that follow.
+   *
+   * @param wanted boolean[] flagging the columns to keep, or null to keep every column.
+   */
+  public void setWantedColumns(boolean[] wanted) {
+    this.wanted = wanted;
+  }
+
+  /**
+   * Gets the column projection in effect.
+   *
+   * @return boolean[] flagging the columns kept, or null if every column is kept.
+   */
+  public boolean[] getWantedColumns() {
+    return wanted;
+  }
+
+  /**
+   * Gets the number of bytes the characters consumed so far take up in UTF-8. After nextRecord
+   * returns, this is the offset of the next record relative to where the input started, provided
+   * the input is valid UTF-8.
+   *
+   * @return long, the UTF-8 byte position.
+   */
+  public long getBytePosition() {
+    return bytePosition;
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return List<String> containing the values of the record, or null at the end of the input.
+   * @throws IOException if an I/O error occurs while reading.
+   */
+  public List<String> nextRecord() throws IOException {
+    List<String> record = new ArrayList<>();
+    field.setLength(0);
+    int state = START_FIELD;
+    boolean started = false;
+    boolean keep = isWanted(0);
+
+    while (true) {
+      int c = read();
+      if (c == -1) {
+        if (!started) {
+          return null;
+        }
+        if (state != START_FIELD || !record.isEmpty()) {
+          record.add(keep ? value(record.size()) : null);
+        }
+        return record;
+      }
+      started = true;
+
+      switch (state) {
+        case START_FIELD:
+          if (c == '"') {
+            state = QUOTED;
+          } else if (c == ',') {
+            record.add(keep ? "" : null);
+            keep = isWanted(record.size());
+          } else if (c == '\n') {
+            if (!record.isEmpty()) {
+              record.add(keep ? "" : null);
+            }
+            return record;
+          } else {
+            append(keep, c);
+            state = UNQUOTED;
+          }
+          break;
+        case UNQUOTED:
+          if (c == ',') {
+            state = endField(record, keep);
+            keep = isWanted(record.size());
+          } else if (c == '\n') {
+            endField(record, keep);
+            return record;
+          } else {
+            append(keep, c);
+          }
+          break;
+        case QUOTED:
+          if (c == '"') {
+            state = QUOTE_IN_QUOTED;
+          } else {
+            append(keep, c);
+          }
+          break;
+        default:
+          if (c == '"') {
+            append(keep, '"');
+            state = QUOTED;
+          } else if (c == ',') {
+            state = endField(record, keep);
+            keep = isWanted(record.size());
+          } else if (c == '\n') {
+            endField(record, keep);
+            return record;
+          } else {
+            // Lenient: text after a closing quote is kept as part of the field.
+            append(keep, c);
+            state = UNQUOTED;
+          }
+          break;
+      }
+    }
+  }
+
+  /**
+   * Adds the current field to the record and resets the field buffer.
+   *
+   * @param record List<String> the record being built.
+   * @param keep   boolean, whether the field is materialized or skipped as null.
+   * @return int, the state for the start of the next field.
+   */
+  private int endField(List<String> record, boolean keep) {
+    record.add(keep ? value(record.size()) : null);
+    field.setLength(0);
+    return START_FIELD;
+  }
+
+  private String value(int column) {
+    return interner == null ? field.toString() : interner.intern(column, field);
+  }
+
+  private boolean isWanted(int column) {
+    return wanted == null || (column < wanted.length && wanted[column]);
+  }
+
+  private void append(boolean keep, int c) {
+    if (keep) {
+      field.append((char) c);
+    }
+  }
+
+  /**
+   * Reads the next character, turning CRLF and lone CR into LF.
+   *
+   * @return int, the next character, or -1 at the end of the input.
+   * @throws IOException if an I/O error occurs while reading.
+   */
+  private int read() throws IOException {
+    int c = next();
+    if (c == '\r') {
+      if (peek() == '\n') {
+        next();
+      }
+      return '\n';
+    }
+    return c;
+  }
+
+  private int next() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    char c = buffer[pos++];
+    bytePosition += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    return c;
+  }
+
+  private int peek() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return buffer[pos];
+  }
+
+  private boolean fill() throws IOException {
+    if (in == null) {
+      return false;
+    }
+    int n = in.read(buffer, 0, buffer.length);
+    if (n <= 0) {
+      return false;
+    }
+    pos = 0;
+    limit = n;
+    return true;
+  }
+}
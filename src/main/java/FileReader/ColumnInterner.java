@@ -0,0 +1,158 @@
+package FileReader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Shares one String per distinct value of the low-cardinality columns of a CSV file, such as
+ * state, city or policy type, so rows kept in memory do not hold a copy of the same value for
+ * every occurrence. Each column has its own small open-addressing table keyed by the value's UTF-8
+ * bytes or characters, so a value seen before is found without creating a String at all.
+ *
+ * <p>Columns are classified as they are read: a column with more than half distinct values among
+ * its first SAMPLE_SIZE values, or more than MAX_DISTINCT distinct values overall, stops being
+ * interned and its table is dropped, so unique columns such as e-mail addresses cost little more
+ * than a counter. An interner belongs to one parser and is not thread-safe.
+ */
+final class ColumnInterner {
+
+  /** The number of values of a column looked at before deciding whether to keep interning it. */
+  static final int SAMPLE_SIZE = 1024;
+
+  /** The most distinct values interned per column. */
+  static final int MAX_DISTINCT = 4096;
+
+  private static final Column DISABLED = new Column();
+
+  private Column[] columns = new Column[16];
+
+  /**
+   * Gets the value of a field given as UTF-8 bytes.
+   *
+   * @param column int, the index of the column.
+   * @param bytes  byte[] holding the field.
+   * @param length int, the number of bytes of the field, starting at index 0.
+   * @return String, the shared instance if the column is interned, otherwise a new String.
+   */
+  String intern(int column, byte[] bytes, int length) {
+    Column table = column(column);
+    if (table == DISABLED) {
+      return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    int hash = 1;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + bytes[i];
+    }
+    int mask = table.values.length - 1;
+    int slot = hash & mask;
+    for (String value; (value = table.values[slot]) != null; slot = (slot + 1) & mask) {
+      byte[] key = table.keys[slot];
+      if (table.hashes[slot] == hash && key != null
+          && Arrays.equals(key, 0, key.length, bytes, 0, length)) {
+        table.seen++;
+        return value;
+      }
+    }
+    String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+    add(column, table, slot, hash, value, Arrays.copyOf(bytes, length));
+    return value;
+  }
+
+  /**
+   * Gets the value of a field given as characters.
+   *
+   * @param column int, the index of the column.
+   * @param chars  CharSequence holding the field; it may be reused once this returns.
+   * @return String, the shared instance if the column is interned, otherwise a new String.
+   */
+  String intern(int column, CharSequence chars) {
+    Column table = column(column);
+    if (table == DISABLED) {
+      return chars.toString();
+    }
+    int length = chars.length();
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    int mask = table.values.length - 1;
+    int slot = hash & mask;
+    for (String value; (value = table.values[slot]) != null; slot = (slot + 1) & mask) {
+      if (table.hashes[slot] == hash && table.keys[slot] == null && value.contentEquals(chars)) {
+        table.seen++;
+        return value;
+      }
+    }
+    String value = chars.toString();
+    add(column, table, slot, hash, value, null);
+    return value;
+  }
+
+  /**
+   * Gets the table of a column, creating it on first use.
+   */
+  private Column column(int column) {
+    if (column >= columns.length) {
+      columns = Arrays.copyOf(columns, Math.max(column + 1, columns.length * 2));
+    }
+    Column table = columns[column];
+    if (table == null) {
+      table = new Column();
+      columns[column] = table;
+    }
+    return table;
+  }
+
+  /**
+   * Records a new distinct value in the free slot found for it, or gives up on the column once
+   * it has too many distinct values.
+   */
+  private void add(int column, Column table, int slot, int hash, String value, byte[] key) {
+    table.seen++;
+    table.distinct++;
+    if (table.distinct > MAX_DISTINCT
+        || table.seen >= SAMPLE_SIZE && table.distinct * 2 > table.seen) {
+      columns[column] = DISABLED;
+      return;
+    }
+    table.values[slot] = value;
+    table.hashes[slot] = hash;
+    table.keys[slot] = key;
+    if (table.distinct * 2 > table.values.length) {
+      table.grow();
+    }
+  }
+
+  /**
+   * The distinct values of one column in an open-addressing table that is kept at most half full.
+   * A value interned from characters has no key bytes.
+   */
+  private static final class Column {
+    private String[] values = new String[16];
+    private int[] hashes = new int[16];
+    private byte[][] keys = new byte[16][];
+    private int seen;
+    private int distinct;
+
+    private void grow() {
+      String[] oldValues = values;
+      int[] oldHashes = hashes;
+      byte[][] oldKeys = keys;
+      values = new String[oldValues.length * 2];
+      hashes = new int[values.length];
+      keys = new byte[values.length][];
+      int mask = values.length - 1;
+      for (int i = 0; i < oldValues.length; i++) {
+        if (oldValues[i] != null) {
+          int slot = oldHashes[i] & mask;
+          while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          values[slot] = oldValues[i];
+          hashes[slot] = oldHashes[i];
+          keys[slot] = oldKeys[i];
+        }
+      }
+    }
+  }
+}
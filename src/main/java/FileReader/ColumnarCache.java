@@ -0,0 +1,585 @@
+package FileReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A binary, column-oriented copy of a parsed CSV file, so later runs over the same file read the
+ * rows back from a memory-mapped file instead of parsing the text again. Every column is
+ * dictionary-encoded: each distinct value is stored once as UTF-8 and each row holds a 1, 2 or
+ * 4 byte code into the dictionary. Values of columns with small dictionaries are decoded once
+ * and shared by all rows.
+ *
+ * <p>The file records the size, modification time and a sampled CRC32C checksum of the CSV file
+ * it was built from and is ignored once any of them changes. Small files are checksummed whole;
+ * of larger ones only SAMPLES evenly spaced blocks, including the first and the last, are read,
+ * so checking a cache costs a few megabytes of reading however large the CSV file is. It also
+ * keeps the checkpoints seen while it was built, i.e. the row numbers and CSV byte offsets, so
+ * rows read from the cache report the same checkpoints as rows parsed from the text and a
+ * ProgressJournal works with either.
+ *
+ * <p>Layout: magic, version, CSV size, CSV modification time, CSV checksum, number of data rows,
+ * number of columns, the checkpoints, the header, the width of every row, then for every column
+ * the dictionary size, the code width, the codes, the dictionary offsets and the dictionary text.
+ * Code 0 stands for a null value. The whole cache is mapped at once, so it has to stay below
+ * 2 GB; the builder does not write larger ones and the CSV file is then parsed on every run.
+ */
+public final class ColumnarCache {
+
+  /** The extension of a cache file. */
+  public static final String EXTENSION = ".columns";
+
+  private static final int MAGIC = 0x43535643;
+  private static final int VERSION = 2;
+  // The number and size of the blocks the checksum of a large CSV file is computed from.
+  static final int SAMPLES = 64;
+  static final int SAMPLE_SIZE = 16 * 1024;
+  // Dictionaries up to this size have their values decoded once and kept.
+  private static final int SHARED_VALUES_LIMIT = 1 << 16;
+
+  private final MappedByteBuffer buffer;
+  private final int rows;
+  private final List<String> header;
+  private final int[] checkpointRows;
+  private final long[] checkpointOffsets;
+  private final int widthsStart;
+  private final int[] codeWidths;
+  private final int[] codesStart;
+  private final int[] offsetsStart;
+  private final int[] textStart;
+  private final String[][] shared;
+
+  private ColumnarCache(MappedByteBuffer buffer) {
+    this.buffer = buffer;
+    buffer.position(28);
+    this.rows = buffer.getInt();
+    int columns = buffer.getInt();
+    int checkpoints = buffer.getInt();
+    checkpointRows = new int[checkpoints];
+    checkpointOffsets = new long[checkpoints];
+    for (int i = 0; i < checkpoints; i++) {
+      checkpointRows[i] = buffer.getInt();
+      checkpointOffsets[i] = buffer.getLong();
+    }
+    int width = buffer.getInt();
+    List<String> values = new ArrayList<>(width);
+    for (int i = 0; i < width; i++) {
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      values.add(new String(bytes, StandardCharsets.UTF_8));
+    }
+    this.header = List.copyOf(values);
+    this.widthsStart = buffer.position();
+    buffer.position(widthsStart + rows * 4);
+
+    codeWidths = new int[columns];
+    codesStart = new int[columns];
+    offsetsStart = new int[columns];
+    textStart = new int[columns];
+    shared = new String[columns][];
+    for (int c = 0; c < columns; c++) {
+      int size = buffer.getInt();
+      codeWidths[c] = buffer.get();
+      codesStart[c] = buffer.position();
+      offsetsStart[c] = codesStart[c] + rows * codeWidths[c];
+      textStart[c] = offsetsStart[c] + (size + 1) * 4;
+      if (size <= SHARED_VALUES_LIMIT) {
+        shared[c] = new String[size + 1];
+      }
+      buffer.position(textStart[c] + buffer.getInt(offsetsStart[c] + size * 4));
+    }
+    if (buffer.position() != buffer.limit()) {
+      throw new IllegalArgumentException("Corrupt columnar cache");
+    }
+  }
+
+  /**
+   * Opens the cache of a CSV file if it exists and was built from the file as it is now.
+   *
+   * @param cacheFile Path of the cache file.
+   * @param csvFile   Path of the CSV file.
+   * @return ColumnarCache, or null if there is no usable cache.
+   * @throws IOException if the CSV file cannot be read.
+   */
+  public static ColumnarCache open(Path cacheFile, Path csvFile) throws IOException {
+    if (!Files.isRegularFile(cacheFile)) {
+      return null;
+    }
+    if (Files.size(cacheFile) > Integer.MAX_VALUE) {
+      // Builders never write one; it was left by something else and is rebuilt.
+      return null;
+    }
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+          || buffer.getLong(8) != Files.size(csvFile)
+          || buffer.getLong(16) != Files.getLastModifiedTime(csvFile).toMillis()
+          || buffer.getInt(24) != (int) checksum(csvFile)) {
+        return null;
+      }
+      return new ColumnarCache(buffer);
+    } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException
+        | NegativeArraySizeException e) {
+      // A truncated or damaged cache is rebuilt.
+      return null;
+    }
+  }
+
+  /**
+   * Computes the CRC32C checksum of a file, or of SAMPLES evenly spaced blocks of it when it is
+   * larger than they are together.
+   *
+   * @param file Path of the file.
+   * @return long, the checksum.
+   * @throws IOException if the file cannot be read.
+   */
+  static long checksum(Path file) throws IOException {
+    CRC32C crc = new CRC32C();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size <= (long) SAMPLES * SAMPLE_SIZE) {
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+      } else {
+        ByteBuffer block = ByteBuffer.allocate(SAMPLE_SIZE);
+        for (int i = 0; i < SAMPLES; i++) {
+          long position = (size - SAMPLE_SIZE) / (SAMPLES - 1) * i;
+          if (i == SAMPLES - 1) {
+            position = size - SAMPLE_SIZE;
+          }
+          block.clear();
+          while (block.hasRemaining() && channel.read(block, position + block.position()) > 0) {
+            // Read the whole block.
+          }
+          crc.update(block.flip());
+        }
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Hands the header and the data rows from the given row on to the handler, calling
+   * RowHandler.checkpoint at the checkpoints recorded when the cache was built.
+   *
+   * @param handler  RowHandler receiving each row together with its row number.
+   * @param columns  java.util.Set<String> of header values whose columns are materialized, or
+   *                 null for all.
+   * @param startRow int, the number of the first data row to hand on.
+   * @return int, the number of the row after the last one read.
+   * @throws IOException if the handler fails.
+   */
+  public int forEachRow(RowHandler handler, java.util.Set<String> columns, int startRow)
+      throws IOException {
+    boolean[] wanted = columns == null ? null
+        : Reader.projectColumns(columns, Reader.headerIndex(header), header.size());
+    handler.handle(0, header);
+    int checkpoint = 0;
+    for (int row = Math.max(startRow, 1); row <= rows; row++) {
+      handler.handle(row, new CachedRow(row - 1, wanted));
+      while (checkpoint < checkpointRows.length && checkpointRows[checkpoint] <= row + 1) {
+        if (checkpointRows[checkpoint] == row + 1) {
+          handler.checkpoint(row + 1, checkpointOffsets[checkpoint]);
+        }
+        checkpoint++;
+      }
+    }
+    return rows + 1;
+  }
+
+  /**
+   * Gets the number of data rows in the cache.
+   *
+   * @return int, the number of rows, not counting the header.
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  private String value(int column, int row) {
+    int code;
+    switch (codeWidths[column]) {
+      case 1:
+        code = buffer.get(codesStart[column] + row) & 0xff;
+        break;
+      case 2:
+        code = buffer.getShort(codesStart[column] + row * 2) & 0xffff;
+        break;
+      default:
+        code = buffer.getInt(codesStart[column] + row * 4);
+        break;
+    }
+    if (code == 0) {
+      return null;
+    }
+    String[] values = shared[column];
+    if (values != null && values[code] != null) {
+      return values[code];
+    }
+    int start = buffer.getInt(offsetsStart[column] + (code - 1) * 4);
+    int end = buffer.getInt(offsetsStart[column] + code * 4);
+    byte[] bytes = new byte[end - start];
+    buffer.get(textStart[column] + start, bytes);
+    String value = new String(bytes, StandardCharsets.UTF_8);
+    if (values != null) {
+      // Racing threads may both decode the value; either String is fine.
+      values[code] = value;
+    }
+    return value;
+  }
+
+  /**
+   * A read-only view of one row of the cache. Values are looked up on access.
+   */
+  private final class CachedRow extends AbstractList<String> {
+    private final int row;
+    private final int width;
+    private final boolean[] wanted;
+
+    private CachedRow(int row, boolean[] wanted) {
+      this.row = row;
+      this.width = buffer.getInt(widthsStart + row * 4);
+      this.wanted = wanted;
+    }
+
+    @Override
+    public String get(int column) {
+      if (column < 0 || column >= width) {
+        throw new IndexOutOfBoundsException("Column " + column + " of " + width);
+      }
+      if (wanted != null && (column >= wanted.length || !wanted[column])) {
+        return null;
+      }
+      return value(column, row);
+    }
+
+    @Override
+    public int size() {
+      return width;
+    }
+  }
+
+  /**
+   * A RowHandler that passes rows on to another handler while collecting them into a cache,
+   * which write saves once the whole file has been read. Rows must arrive numbered from 1
+   * without gaps and with every column materialized.
+   *
+   * <p>Only the dictionaries stay in memory, and each of them holds at most DICTIONARY_LIMIT
+   * values; later distinct values get codes of their own without being looked up again. The
+   * code of every row is streamed to a spill file per column, together with the text of each
+   * value the first time its code is used, and write assembles the cache from the spill files.
+   * close deletes them.
+   */
+  public static final class Builder implements RowHandler, AutoCloseable {
+
+    /** The most distinct values of a column kept in memory to look codes up. */
+    static final int DICTIONARY_LIMIT = 1 << 16;
+
+    private final RowHandler next;
+    private final Path folder;
+    private List<String> header = List.of();
+    private final List<SpilledColumn> columns = new ArrayList<>();
+    private Path widthsFile;
+    private DataOutputStream widths;
+    private int rows;
+    private int[] checkpointRows = new int[16];
+    private long[] checkpointOffsets = new long[16];
+    private int checkpoints;
+    private boolean complete = true;
+    private IOException failure;
+
+    /**
+     * Creates a builder in front of a handler.
+     *
+     * @param next   RowHandler the rows are passed on to.
+     * @param folder Path of the folder the spill files are created in.
+     */
+    public Builder(RowHandler next, Path folder) {
+      this.next = next;
+      this.folder = folder;
+    }
+
+    @Override
+    public void handle(int rowNumber, List<String> row) throws IOException {
+      if (rowNumber == 0) {
+        header = new ArrayList<>(row);
+      } else if (rowNumber != rows + 1) {
+        complete = false;
+      } else if (complete && failure == null) {
+        try {
+          add(row);
+        } catch (IOException e) {
+          // The rows are still handed on; write reports why they were not cached.
+          failure = e;
+        }
+      }
+      next.handle(rowNumber, row);
+    }
+
+    private void add(List<String> row) throws IOException {
+      if (widths == null) {
+        widthsFile = Files.createTempFile(folder, "widths", ".tmp");
+        widths = spill(widthsFile);
+      }
+      while (columns.size() < row.size()) {
+        columns.add(new SpilledColumn(Files.createTempFile(folder, "column", ".tmp"), rows));
+      }
+      widths.writeInt(row.size());
+      for (int c = 0; c < columns.size(); c++) {
+        columns.get(c).add(c < row.size() ? row.get(c) : null);
+      }
+      rows++;
+    }
+
+    @Override
+    public void checkpoint(int nextRow, long byteOffset) throws IOException {
+      if (checkpoints == checkpointRows.length) {
+        checkpointRows = Arrays.copyOf(checkpointRows, checkpoints * 2);
+        checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoints * 2);
+      }
+      checkpointRows[checkpoints] = nextRow;
+      checkpointOffsets[checkpoints] = byteOffset;
+      checkpoints++;
+      next.checkpoint(nextRow, byteOffset);
+    }
+
+    /**
+     * Saves the collected rows, unless they did not arrive in order or the CSV file changed
+     * while it was read. The cache is written to a temporary file and moved into place, so
+     * readers never see half of it.
+     *
+     * @param cacheFile Path of the cache file.
+     * @param csvFile   Path of the CSV file the rows were read from.
+     * @param csvSize   long, the size of the CSV file when it was read.
+     * @param modified  long, the modification time of the CSV file, in milliseconds, when it was
+     *                  read.
+     * @param checksum  long, the sampled checksum of the CSV file when it was read.
+     * @return boolean, true if the cache was written, false if the rows cannot be cached.
+     * @throws IOException if the cache cannot be written, including when the spill files could
+     *                     not be written or the cache would be larger than the 2 GB a mapped
+     *                     file can hold.
+     */
+    public boolean write(Path cacheFile, Path csvFile, long csvSize, long modified, long checksum)
+        throws IOException {
+      if (!complete || Files.size(csvFile) != csvSize
+          || Files.getLastModifiedTime(csvFile).toMillis() != modified) {
+        return false;
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      if (widths != null) {
+        widths.close();
+      }
+      ByteArrayOutputStream head = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(head);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(csvSize);
+      out.writeLong(modified);
+      out.writeInt((int) checksum);
+      out.writeInt(rows);
+      out.writeInt(columns.size());
+      out.writeInt(checkpoints);
+      for (int i = 0; i < checkpoints; i++) {
+        out.writeInt(checkpointRows[i]);
+        out.writeLong(checkpointOffsets[i]);
+      }
+      out.writeInt(header.size());
+      for (String value : header) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      long size = head.size() + rows * 4L;
+      for (SpilledColumn column : columns) {
+        column.finish();
+        size += column.sectionSize(rows);
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("it would take " + size + " bytes, more than the 2 GB a mapped file"
+            + " can hold, so the CSV file is parsed on every run");
+      }
+
+      Path temp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "columns", ".tmp");
+      try {
+        try (DataOutputStream cache = spill(temp)) {
+          head.writeTo(cache);
+          if (widthsFile != null) {
+            Files.copy(widthsFile, cache);
+          }
+          for (SpilledColumn column : columns) {
+            column.writeTo(cache, rows);
+          }
+        }
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+
+    /**
+     * Deletes the spill files.
+     *
+     * @throws IOException if a spill file cannot be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+      if (widths != null) {
+        widths.close();
+        Files.deleteIfExists(widthsFile);
+      }
+      for (SpilledColumn column : columns) {
+        column.finish();
+        Files.deleteIfExists(column.file);
+      }
+    }
+
+    private static DataOutputStream spill(Path file) throws IOException {
+      return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+  }
+
+  /**
+   * The codes of one column as they are built: for every row its code, followed by the length
+   * and UTF-8 text of the value when the code is used for the first time.
+   */
+  private static final class SpilledColumn {
+    private final Path file;
+    private final DataOutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private int size;
+    private long textBytes;
+    private boolean finished;
+
+    private SpilledColumn(Path file, int emptyRows) throws IOException {
+      this.file = file;
+      this.out = Builder.spill(file);
+      for (int row = 0; row < emptyRows; row++) {
+        out.writeInt(0);
+      }
+    }
+
+    private void add(String value) throws IOException {
+      if (value == null) {
+        out.writeInt(0);
+        return;
+      }
+      Integer code = dictionary.get(value);
+      if (code != null) {
+        out.writeInt(code);
+        return;
+      }
+      size++;
+      if (dictionary.size() < Builder.DICTIONARY_LIMIT) {
+        dictionary.put(value, size);
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      textBytes += bytes.length;
+      out.writeInt(size);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    private void finish() throws IOException {
+      if (!finished) {
+        finished = true;
+        dictionary.clear();
+        out.close();
+      }
+    }
+
+    private int codeWidth() {
+      return size < 0xff ? 1 : size < 0xffff ? 2 : 4;
+    }
+
+    private long sectionSize(int rows) {
+      return 5 + (long) rows * codeWidth() + (size + 1L) * 4 + textBytes;
+    }
+
+    /**
+     * Writes the section of the column: dictionary size, code width, codes, dictionary offsets
+     * and dictionary text, reading the spill file once for each of the last three.
+     */
+    private void writeTo(DataOutputStream cache, int rows) throws IOException {
+      int codeWidth = codeWidth();
+      cache.writeInt(size);
+      cache.writeByte(codeWidth);
+      try (DataInputStream in = read()) {
+        int seen = 0;
+        for (int row = 0; row < rows; row++) {
+          int code = in.readInt();
+          if (code > seen) {
+            seen = code;
+            in.skipNBytes(in.readInt());
+          }
+          if (codeWidth == 1) {
+            cache.writeByte(code);
+          } else if (codeWidth == 2) {
+            cache.writeShort(code);
+          } else {
+            cache.writeInt(code);
+          }
+        }
+      }
+      cache.writeInt(0);
+      try (DataInputStream in = read()) {
+        int seen = 0;
+        int offset = 0;
+        for (int row = 0; row < rows; row++) {
+          int code = in.readInt();
+          if (code > seen) {
+            seen = code;
+            int length = in.readInt();
+            in.skipNBytes(length);
+            offset += length;
+            cache.writeInt(offset);
+          }
+        }
+      }
+      try (DataInputStream in = read()) {
+        int seen = 0;
+        byte[] bytes = new byte[256];
+        for (int row = 0; row < rows; row++) {
+          int code = in.readInt();
+          if (code > seen) {
+            seen = code;
+            int length = in.readInt();
+            if (bytes.length < length) {
+              bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            in.readFully(bytes, 0, length);
+            cache.write(bytes, 0, length);
+          }
+        }
+      }
+    }
+
+    private DataInputStream read() throws IOException {
+      return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package FileReader;
+
+import static FileWriter.TemplateProcessor.generateOutputFileName;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A manifest in the output directory remembering, for every generated file, a hash of the row
+ * fields and of the template text it was rendered from. An incremental run asks the manifest
+ * whether a file is still current before rendering it, so only files whose row or template
+ * changed are rendered and written again. Files listed by the previous run but not produced by
+ * this one belong to rows or types that are gone and are removed when the manifest is saved.
+ *
+ * <p>Each line of the manifest is "type rowNumber hash", with the hash in hexadecimal. Hashes are
+ * kept per type in an array indexed by row number, 0 meaning no file.
+ */
+public class DeltaManifest {
+
+  /** The name of the manifest file in the output directory. */
+  public static final String MANIFEST_NAME = ".delta.manifest";
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long NULL_FIELD = 0x9e3779b97f4a7c15L;
+
+  private final String outputDir;
+  private final String name;
+  private final Map<String, long[]> previous;
+  private final Map<String, long[]> current = new LinkedHashMap<>();
+  private final AtomicInteger skipped = new AtomicInteger();
+  private int removed;
+
+  private DeltaManifest(String outputDir, String name, Map<String, long[]> previous) {
+    this.outputDir = outputDir;
+    this.name = name;
+    this.previous = previous;
+  }
+
+  /**
+   * Opens the manifest of the output directory, reading what the previous run generated.
+   *
+   * @param outputDir String, directory where output files are saved.
+   * @return DeltaManifest, empty if no earlier incremental run wrote to the directory.
+   * @throws IOException if the manifest exists but cannot be read.
+   */
+  public static DeltaManifest open(String outputDir) throws IOException {
+    return open(outputDir, MANIFEST_NAME);
+  }
+
+  /**
+   * Opens a manifest with the given file name, so several runs sharing an output directory can
+   * each keep their own.
+   *
+   * @param outputDir String, directory where output files are saved.
+   * @param name      String, the file name of the manifest.
+   * @return DeltaManifest, empty if no earlier incremental run wrote the manifest.
+   * @throws IOException if the manifest exists but cannot be read.
+   */
+  public static DeltaManifest open(String outputDir, String name) throws IOException {
+    Map<String, long[]> previous = new LinkedHashMap<>();
+    File file = new File(outputDir, name);
+    if (file.exists()) {
+      try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = in.readLine()) != null) {
+          String[] parts = line.split(" ");
+          if (parts.length == 3 && parts[1].matches("\\d{1,9}")) {
+            put(previous, parts[0], Integer.parseInt(parts[1]), Long.parseUnsignedLong(parts[2], 16));
+          }
+        }
+      } catch (NumberFormatException e) {
+        previous.clear();
+      }
+    }
+    return new DeltaManifest(outputDir, name, previous);
+  }
+
+  /**
+   * Hashes the text of a template together with the header index it is compiled against, since
+   * renaming or moving a column changes the output even when the row fields stay the same.
+   *
+   * @param template  String, the template content.
+   * @param headerMap Map<String, Integer>, mapping of CSV header values to their column indices.
+   * @return long, the hash of the template.
+   */
+  public static long hashTemplate(String template, Map<String, Integer> headerMap) {
+    return mix(mix(FNV_OFFSET, template), new TreeMap<>(headerMap).toString());
+  }
+
+  /**
+   * Hashes the fields of a row, seeded with the hash of the template it is rendered with.
+   *
+   * @param templateHash long, the hash returned by hashTemplate.
+   * @param row          List<String>, the parsed values of the row; null fields are allowed.
+   * @return long, a hash that is never 0.
+   */
+  public static long hashRow(long templateHash, List<String> row) {
+    long hash = templateHash;
+    for (String field : row) {
+      if (field == null) {
+        hash = (hash ^ NULL_FIELD) * FNV_PRIME;
+      } else {
+        // Mixing in the length keeps ["ab", "c"] and ["a", "bc"] apart.
+        hash = mix((hash ^ field.length()) * FNV_PRIME, field);
+      }
+    }
+    return hash == 0 ? 1 : hash;
+  }
+
+  private static long mix(long hash, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * Checks whether the file for a row was generated by the previous run from the same row and
+   * template and still exists. A current file is carried over to the new manifest.
+   *
+   * @param type      String, the type of file.
+   * @param rowNumber int, the number of the row in the CSV file.
+   * @param hash      long, the hash returned by hashRow.
+   * @return boolean, true if the file does not need to be generated again.
+   */
+  public boolean isCurrent(String type, int rowNumber, long hash) {
+    long[] hashes = previous.get(type);
+    if (hashes == null || rowNumber >= hashes.length || hashes[rowNumber] != hash
+        || !new File(outputDir, generateOutputFileName(type, rowNumber)).exists()) {
+      return false;
+    }
+    record(type, rowNumber, hash);
+    skipped.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Records the hash of a file that has just been generated.
+   *
+   * @param type      String, the type of file.
+   * @param rowNumber int, the number of the row in the CSV file.
+   * @param hash      long, the hash returned by hashRow.
+   */
+  public synchronized void record(String type, int rowNumber, long hash) {
+    put(current, type, rowNumber, hash);
+  }
+
+  private static void put(Map<String, long[]> hashes, String type, int rowNumber, long hash) {
+    long[] row = hashes.get(type);
+    if (row == null || rowNumber >= row.length) {
+      row = row == null ? new long[Math.max(16, rowNumber + 1)]
+          : Arrays.copyOf(row, Math.max(row.length * 2, rowNumber + 1));
+      hashes.put(type, row);
+    }
+    row[rowNumber] = hash;
+  }
+
+  /**
+   * Removes the files of the previous run that this run did not produce, then replaces the
+   * manifest on disk with the one built by this run.
+   *
+   * @throws IOException if a file cannot be removed or the manifest cannot be written.
+   */
+  public synchronized void save() throws IOException {
+    for (Map.Entry<String, long[]> entry : previous.entrySet()) {
+      long[] now = current.get(entry.getKey());
+      long[] before = entry.getValue();
+      for (int row = 0; row < before.length; row++) {
+        if (before[row] != 0 && (now == null || row >= now.length || now[row] == 0)
+            && Files.deleteIfExists(Path.of(outputDir, generateOutputFileName(entry.getKey(), row)))) {
+          removed++;
+        }
+      }
+    }
+
+    Path file = Path.of(outputDir, name);
+    Path temp = Path.of(outputDir, name + ".tmp");
+    try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, long[]> entry : current.entrySet()) {
+        long[] hashes = entry.getValue();
+        for (int row = 0; row < hashes.length; row++) {
+          if (hashes[row] != 0) {
+            out.write(entry.getKey() + " " + row + " " + Long.toHexString(hashes[row]));
+            out.newLine();
+          }
+        }
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Gets the number of files that were current and not generated again.
+   *
+   * @return int, the number of skipped files.
+   */
+  public int getSkipped() {
+    return skipped.get();
+  }
+
+  /**
+   * Gets the number of files removed by save.
+   *
+   * @return int, the number of removed files.
+   */
+  public int getRemoved() {
+    return removed;
+  }
+}
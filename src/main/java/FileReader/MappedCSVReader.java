@@ -0,0 +1,388 @@
+package FileReader;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a UTF-8 CSV file through a memory-mapped FileChannel. Record and field boundaries are
+ * found directly in the mapped bytes (quotes, commas and line breaks are single ASCII bytes in
+ * UTF-8), and a field is only decoded into a String when its column is wanted. Columns that are
+ * not wanted are returned as null, which saves both the decoding work and the garbage for wide
+ * files where the templates only use a few columns. Fields of columns that repeat a few values
+ * are looked up in a ColumnInterner by their bytes and share one String.
+ *
+ * <p>The file is mapped in windows, so files larger than 2 GB are supported. Rows are parsed with
+ * the same rules as CSVTokenizer and produce the same values.
+ */
+public class MappedCSVReader {
+
+  static final long WINDOW_SIZE = 64L << 20;
+
+  private static final int START_FIELD = 0;
+  private static final int UNQUOTED = 1;
+  private static final int QUOTED = 2;
+  private static final int QUOTE_IN_QUOTED = 3;
+
+  private final String filePath;
+  private final Set<String> columns;
+  private final long windowSize;
+  private int startRow = 1;
+  private long startOffset;
+  private int checkpointInterval;
+
+  private int[] fieldStart = new int[64];
+  private int[] fieldEnd = new int[64];
+  private boolean[] fieldPlain = new boolean[64];
+  private int fieldCount;
+  private byte[] scratch = new byte[256];
+  private final ColumnInterner interner = new ColumnInterner();
+
+  /**
+   * Creates a reader for the given file.
+   *
+   * @param filePath String representing the path to the CSV file.
+   * @param columns  Set<String> of header values whose columns are decoded, or null for all.
+   */
+  public MappedCSVReader(String filePath, Set<String> columns) {
+    this(filePath, columns, WINDOW_SIZE);
+  }
+
+  /**
+   * Creates a reader with a custom mapping window size.
+   *
+   * @param filePath   String representing the path to the CSV file.
+   * @param columns    Set<String> of header values whose columns are decoded, or null for all.
+   * @param windowSize long, the number of bytes mapped at a time.
+   */
+  MappedCSVReader(String filePath, Set<String> columns, long windowSize) {
+    this.filePath = filePath;
+    this.columns = columns;
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Makes the reader skip straight to a later row after the header has been read.
+   *
+   * @param row    int, the number of the first data row to read.
+   * @param offset long, the byte offset in the file where that row starts.
+   */
+  public void setStart(int row, long offset) {
+    this.startRow = row;
+    this.startOffset = offset;
+  }
+
+  /**
+   * Makes the reader call RowHandler.checkpoint every given number of rows.
+   *
+   * @param interval int, the number of rows between checkpoints, or 0 for none.
+   */
+  public void setCheckpointInterval(int interval) {
+    this.checkpointInterval = interval;
+  }
+
+  /**
+   * Reads the file and hands every row, header first, to the handler.
+   *
+   * @param handler RowHandler receiving each parsed row together with its row number.
+   * @return int, the number of rows read, including the header.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  public int stream(RowHandler handler) throws IOException {
+    int rowNum = 0;
+    boolean[] wanted = null;
+
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+      long window = windowSize;
+      while (position < size) {
+        int length = (int) Math.min(Math.min(window, size - position), Integer.MAX_VALUE - 8);
+        boolean last = position + length == size;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+        int consumed = 0;
+        boolean skip = false;
+        while (consumed < length) {
+          int end = nextRecord(buffer, consumed, length, last);
+          if (end < 0) {
+            break;
+          }
+          List<String> row = decode(buffer, wanted);
+          if (rowNum == 0) {
+            wanted = wantedColumns(row);
+          }
+          handler.handle(rowNum, row);
+          rowNum++;
+          consumed = end;
+          if (rowNum == 1 && startRow > 1) {
+            skip = true;
+            break;
+          }
+          if (checkpointInterval > 0 && rowNum % checkpointInterval == 0) {
+            handler.checkpoint(rowNum, position + consumed);
+          }
+        }
+
+        if (skip) {
+          position = startOffset;
+          rowNum = startRow;
+          continue;
+        }
+        if (consumed == 0) {
+          // A single record is larger than the window; map a bigger one.
+          window *= 2;
+        }
+        position += consumed;
+      }
+    }
+    return rowNum;
+  }
+
+  /**
+   * Parses the records of one mapped range, for readers that split a file into ranges of their
+   * own. The range must start at the start of a record.
+   *
+   * @param buffer  MappedByteBuffer holding the range.
+   * @param limit   int, number of bytes in the range.
+   * @param last    boolean, whether the range reaches the end of the file.
+   * @param wanted  boolean[] flagging the columns to decode, or null to decode all of them.
+   * @param maxRows int, the most records to parse.
+   * @param rows    List<List<String>> the parsed records are added to.
+   * @return int, the offset just past the last record parsed; less than limit if a record
+   *         continues past the range or maxRows was reached.
+   */
+  int parseRange(MappedByteBuffer buffer, int limit, boolean last, boolean[] wanted, int maxRows,
+      List<List<String>> rows) {
+    int consumed = 0;
+    while (consumed < limit && rows.size() < maxRows) {
+      int end = nextRecord(buffer, consumed, limit, last);
+      if (end < 0) {
+        break;
+      }
+      rows.add(decode(buffer, wanted));
+      consumed = end;
+    }
+    return consumed;
+  }
+
+  /**
+   * Works out which columns to decode from the header row.
+   *
+   * @param header List<String> containing the values of the CSV header row.
+   * @return boolean[] flagging the wanted columns, or null when every column is wanted.
+   */
+  private boolean[] wantedColumns(List<String> header) {
+    if (columns == null) {
+      return null;
+    }
+    return Reader.projectColumns(columns, Reader.headerIndex(header), header.size());
+  }
+
+  /**
+   * Finds the fields of the record starting at the given offset.
+   *
+   * @param buffer MappedByteBuffer holding the current window.
+   * @param from   int, offset of the start of the record.
+   * @param limit  int, number of valid bytes in the window.
+   * @param last   boolean, whether the window reaches the end of the file.
+   * @return int, the offset just past the record, or -1 if the record continues past the window.
+   */
+  private int nextRecord(MappedByteBuffer buffer, int from, int limit, boolean last) {
+    fieldCount = 0;
+    int state = START_FIELD;
+    int start = from;
+    boolean plain = true;
+
+    for (int i = from; i < limit; i++) {
+      byte b = buffer.get(i);
+      switch (state) {
+        case START_FIELD:
+          if (b == '"') {
+            state = QUOTED;
+          } else if (b == ',') {
+            addField(start, i, true);
+            start = i + 1;
+          } else if (b == '\n' || b == '\r') {
+            if (fieldCount > 0) {
+              addField(start, i, true);
+            }
+            return endOfLine(buffer, i, limit, last);
+          } else {
+            state = UNQUOTED;
+          }
+          break;
+        case UNQUOTED:
+          if (b == ',') {
+            addField(start, i, plain);
+            start = i + 1;
+            plain = true;
+            state = START_FIELD;
+          } else if (b == '\n' || b == '\r') {
+            addField(start, i, plain);
+            return endOfLine(buffer, i, limit, last);
+          } else if (b == '"') {
+            plain = false;
+          }
+          break;
+        case QUOTED:
+          if (b == '"') {
+            state = QUOTE_IN_QUOTED;
+          } else if (b == '\r') {
+            plain = false;
+          }
+          break;
+        default:
+          if (b == '"') {
+            plain = false;
+            state = QUOTED;
+          } else if (b == ',') {
+            addField(start, i, plain);
+            start = i + 1;
+            plain = true;
+            state = START_FIELD;
+          } else if (b == '\n' || b == '\r') {
+            addField(start, i, plain);
+            return endOfLine(buffer, i, limit, last);
+          } else {
+            plain = false;
+            state = UNQUOTED;
+          }
+          break;
+      }
+    }
+
+    if (!last) {
+      return -1;
+    }
+    if (state == QUOTED) {
+      plain = false;
+    }
+    if (state != START_FIELD || fieldCount > 0) {
+      addField(start, limit, plain);
+    }
+    return limit;
+  }
+
+  /**
+   * Skips the line break at the given offset, treating CRLF as one line break.
+   *
+   * @return int, the offset just past the line break, or -1 if a CR ends a window that is not the
+   *         last one and the following byte is unknown.
+   */
+  private static int endOfLine(MappedByteBuffer buffer, int i, int limit, boolean last) {
+    if (buffer.get(i) == '\r') {
+      if (i + 1 < limit) {
+        return buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+      }
+      return last ? i + 1 : -1;
+    }
+    return i + 1;
+  }
+
+  /**
+   * Records the byte range of a field. A plain field is either unquoted without quote characters,
+   * or wrapped in one pair of quotes with no quotes or CRs inside, and can be decoded directly.
+   */
+  private void addField(int start, int end, boolean plain) {
+    if (fieldCount == fieldStart.length) {
+      fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+      fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+      fieldPlain = Arrays.copyOf(fieldPlain, fieldCount * 2);
+    }
+    fieldStart[fieldCount] = start;
+    fieldEnd[fieldCount] = end;
+    fieldPlain[fieldCount] = plain;
+    fieldCount++;
+  }
+
+  /**
+   * Decodes the fields of the current record.
+   *
+   * @param buffer MappedByteBuffer holding the current window.
+   * @param wanted boolean[] flagging the columns to decode, or null to decode all of them.
+   * @return List<String> containing the values, with null for columns that are not wanted.
+   */
+  private List<String> decode(MappedByteBuffer buffer, boolean[] wanted) {
+    List<String> row = new ArrayList<>(fieldCount);
+    for (int f = 0; f < fieldCount; f++) {
+      if (wanted != null && (f >= wanted.length || !wanted[f])) {
+        row.add(null);
+        continue;
+      }
+      int start = fieldStart[f];
+      int end = fieldEnd[f];
+      boolean quoted = end > start && buffer.get(start) == '"';
+      if (fieldPlain[f] && quoted) {
+        row.add(decodeBytes(buffer, start + 1, end - 1, f));
+      } else if (fieldPlain[f]) {
+        row.add(decodeBytes(buffer, start, end, f));
+      } else {
+        row.add(unescape(buffer, start, end, f));
+      }
+    }
+    return row;
+  }
+
+  /**
+   * Decodes a field, sharing the String with earlier rows if its column is interned.
+   */
+  private String decodeBytes(MappedByteBuffer buffer, int start, int end, int column) {
+    int length = end - start;
+    if (length <= 0) {
+      return "";
+    }
+    ensureScratch(length);
+    buffer.get(start, scratch, 0, length);
+    return interner.intern(column, scratch, length);
+  }
+
+  /**
+   * Decodes a field that is not plain with the same rules as CSVTokenizer: inside the quotes a
+   * doubled quote stands for one quote and a CR or CRLF for an LF; text after the closing quote
+   * and unquoted fields with stray quotes are kept as they are. The field is unescaped into the
+   * scratch array and decoded once.
+   */
+  private String unescape(MappedByteBuffer buffer, int start, int end, int column) {
+    ensureScratch(end - start);
+    int length = 0;
+    int i = start;
+    if (i < end && buffer.get(i) == '"') {
+      i++;
+      while (i < end) {
+        byte b = buffer.get(i++);
+        if (b == '"') {
+          if (i < end && buffer.get(i) == '"') {
+            scratch[length++] = '"';
+            i++;
+          } else {
+            break;
+          }
+        } else if (b == '\r') {
+          scratch[length++] = '\n';
+          if (i < end && buffer.get(i) == '\n') {
+            i++;
+          }
+        } else {
+          scratch[length++] = b;
+        }
+      }
+    }
+    while (i < end) {
+      scratch[length++] = buffer.get(i++);
+    }
+    return length == 0 ? "" : interner.intern(column, scratch, length);
+  }
+
+  private void ensureScratch(int length) {
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+  }
+}
@@ -0,0 +1,361 @@
+package FileReader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a UTF-8 CSV file by parsing byte ranges of it on several threads of a ForkJoinPool, for
+ * files large enough that parsing on one thread holds up the rendering threads. Rows are still
+ * handed to the handler on the calling thread, in file order and with the same row numbers a
+ * MappedCSVReader would give them.
+ *
+ * <p>The file is split as it is read. The threads count the quote characters of each range of
+ * CHUNK_SIZE bytes and note the first line feed following an even and an odd number of quotes in
+ * that range. Adding the counts up in order tells whether each range starts inside a quoted
+ * field, and so which of the two line feeds ends a record; a range without one is merged into the
+ * previous chunk. The chunks are parsed in parallel, and both the counting and the parsing run
+ * only a few chunks ahead of the rows being handed to the handler, so the file is read once in
+ * step with the handler rather than scanned in full before the first row.
+ *
+ * <p>The counting assumes every quote belongs to a quoted field. A stray quote in an unquoted
+ * field, such as 5" wide, is a literal character and flips the count, so a boundary can land
+ * inside a record. Boundaries are therefore only trusted once proven: the first chunk starts
+ * right after the header, and a chunk parsed from the start of a record that ends exactly at the
+ * end of the chunk proves the next chunk starts at a record too. As soon as a chunk ends anywhere
+ * else, the chunks parsed ahead are discarded and the rest of the file is parsed on the calling
+ * thread from the last proven boundary, so the rows are always those a MappedCSVReader gives.
+ */
+public class ParallelCSVReader {
+
+  /** The nominal number of bytes parsed by one task. */
+  static final long CHUNK_SIZE = 2L << 20;
+
+  private final String filePath;
+  private final Set<String> columns;
+  private final int parallelism;
+  private final long chunkSize;
+  private int startRow = 1;
+  private long startOffset;
+
+  /**
+   * Creates a reader for the given file.
+   *
+   * @param filePath    String representing the path to the CSV file.
+   * @param columns     Set<String> of header values whose columns are decoded, or null for all.
+   * @param parallelism int, the number of threads parsing the file.
+   */
+  public ParallelCSVReader(String filePath, Set<String> columns, int parallelism) {
+    this(filePath, columns, parallelism, CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a reader with a custom chunk size.
+   *
+   * @param filePath    String representing the path to the CSV file.
+   * @param columns     Set<String> of header values whose columns are decoded, or null for all.
+   * @param parallelism int, the number of threads parsing the file.
+   * @param chunkSize   long, the nominal number of bytes parsed by one task.
+   */
+  ParallelCSVReader(String filePath, Set<String> columns, int parallelism, long chunkSize) {
+    this.filePath = filePath;
+    this.columns = columns;
+    this.parallelism = Math.max(1, parallelism);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Makes the reader skip straight to a later row after the header has been read.
+   *
+   * @param row    int, the number of the first data row to read.
+   * @param offset long, the byte offset in the file where that row starts.
+   */
+  public void setStart(int row, long offset) {
+    this.startRow = row;
+    this.startOffset = offset;
+  }
+
+  /**
+   * Reads the file and hands every row, header first, to the handler. RowHandler.checkpoint is
+   * called at the end of every chunk.
+   *
+   * @param handler RowHandler receiving each parsed row together with its row number.
+   * @return int, the number of the row after the last one read.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  public int stream(RowHandler handler) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      long size = channel.size();
+      List<List<String>> rows = new ArrayList<>(1);
+      long headerEnd = readHeader(channel, size, rows);
+      if (rows.isEmpty()) {
+        return 0;
+      }
+      List<String> header = rows.get(0);
+      boolean[] wanted = columns == null ? null
+          : Reader.projectColumns(columns, Reader.headerIndex(header), header.size());
+      handler.handle(0, header);
+
+      int rowNum = startRow > 1 ? startRow : 1;
+      long start = startRow > 1 ? startOffset : headerEnd;
+      if (start >= size) {
+        return rowNum;
+      }
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        return parseChunks(pool, channel, new Boundaries(pool, channel, start, size), wanted,
+            rowNum, handler);
+      } finally {
+        pool.shutdownNow();
+        awaitTermination(pool);
+      }
+    }
+  }
+
+  /**
+   * Parses the header record, mapping more of the file until it fits.
+   *
+   * @return long, the offset just past the header.
+   */
+  private long readHeader(FileChannel channel, long size, List<List<String>> rows)
+      throws IOException {
+    MappedCSVReader reader = new MappedCSVReader(filePath, null);
+    long window = chunkSize;
+    while (true) {
+      int length = (int) Math.min(Math.min(window, size), Integer.MAX_VALUE - 8);
+      boolean last = length == size;
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      int end = reader.parseRange(buffer, length, last, null, 1, rows);
+      if (end > 0 || last || length == Integer.MAX_VALUE - 8) {
+        return end;
+      }
+      window *= 2;
+    }
+  }
+
+  /**
+   * Finds the chunk boundaries in order, counting the quotes of the ranges on the pool no further
+   * ahead than the boundaries asked for.
+   */
+  private final class Boundaries {
+    private final ForkJoinPool pool;
+    private final FileChannel channel;
+    private final long start;
+    private final long size;
+    private final int ranges;
+    private final Deque<Future<long[]>> scans = new ArrayDeque<>();
+    private int submitted;
+    private int resolved;
+    private boolean quoted;
+
+    private Boundaries(ForkJoinPool pool, FileChannel channel, long start, long size) {
+      this.pool = pool;
+      this.channel = channel;
+      this.start = start;
+      this.size = size;
+      this.ranges = (int) ((size - start + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Gets the boundary after the ones returned so far.
+     *
+     * @return long, the offset where the next chunk starts, or the size of the file after the
+     *         last chunk.
+     */
+    private long next() throws IOException {
+      while (resolved < ranges) {
+        while (submitted < ranges && submitted - resolved < parallelism * 2) {
+          long from = start + submitted * chunkSize;
+          long to = Math.min(size, from + chunkSize);
+          scans.add(pool.submit(() -> scan(channel, from, to)));
+          submitted++;
+        }
+        long[] scan = await(scans.poll());
+        int range = resolved++;
+        long lineFeed = quoted ? scan[2] : scan[1];
+        if ((scan[0] & 1) == 1) {
+          quoted = !quoted;
+        }
+        if (range > 0 && lineFeed >= 0 && lineFeed < size) {
+          return lineFeed;
+        }
+      }
+      return size;
+    }
+  }
+
+  /**
+   * Counts the quotes of a range and finds the first line feed after an even and after an odd
+   * number of them.
+   *
+   * @return long[] of the quote count and the offsets just past the two line feeds, -1 if none.
+   */
+  private static long[] scan(FileChannel channel, long from, long to) throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    long quotes = 0;
+    long even = -1;
+    long odd = -1;
+    for (int i = 0; i < buffer.limit(); i++) {
+      byte b = buffer.get(i);
+      if (b == '"') {
+        quotes++;
+      } else if (b == '\n') {
+        if ((quotes & 1) == 0) {
+          if (even < 0) {
+            even = from + i + 1;
+          }
+        } else if (odd < 0) {
+          odd = from + i + 1;
+        }
+      }
+    }
+    return new long[]{quotes, even, odd};
+  }
+
+  /**
+   * The rows of one chunk, and whether its last record ended exactly at the end of the chunk.
+   */
+  private static final class Chunk {
+    private final long from;
+    private final long to;
+    private final List<List<String>> rows;
+    private final boolean complete;
+
+    private Chunk(long from, long to, List<List<String>> rows, boolean complete) {
+      this.from = from;
+      this.to = to;
+      this.rows = rows;
+      this.complete = complete;
+    }
+  }
+
+  /**
+   * Parses the chunks on the pool, keeping twice as many chunks in flight as there are threads,
+   * and hands their rows to the handler in order.
+   *
+   * @return int, the number of the row after the last one read.
+   */
+  private int parseChunks(ForkJoinPool pool, FileChannel channel, Boundaries boundaries,
+      boolean[] wanted, int rowNum, RowHandler handler) throws IOException {
+    Deque<Future<Chunk>> parses = new ArrayDeque<>();
+    long from = boundaries.start;
+    while (true) {
+      while (parses.size() < parallelism * 2 && from < boundaries.size) {
+        long chunkFrom = from;
+        long chunkTo = boundaries.next();
+        boolean last = chunkTo == boundaries.size;
+        parses.add(pool.submit(() -> parse(channel, chunkFrom, chunkTo, last, wanted)));
+        from = chunkTo;
+      }
+      if (parses.isEmpty()) {
+        return rowNum;
+      }
+      Chunk chunk = await(parses.poll());
+      if (!chunk.complete) {
+        for (Future<Chunk> parse : parses) {
+          parse.cancel(false);
+        }
+        return parseSequentially(channel, chunk.from, boundaries.size, wanted, rowNum, handler);
+      }
+      for (List<String> row : chunk.rows) {
+        handler.handle(rowNum, row);
+        rowNum++;
+      }
+      if (chunk.to < boundaries.size) {
+        handler.checkpoint(rowNum, chunk.to);
+      }
+    }
+  }
+
+  private Chunk parse(FileChannel channel, long from, long to, boolean last, boolean[] wanted)
+      throws IOException {
+    List<List<String>> rows = new ArrayList<>();
+    if (to - from > Integer.MAX_VALUE - 8) {
+      // A merged chunk too large to map at once; leave it to the sequential fallback.
+      return new Chunk(from, to, rows, false);
+    }
+    int length = (int) (to - from);
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+    int end = new MappedCSVReader(filePath, null)
+        .parseRange(buffer, length, last, wanted, Integer.MAX_VALUE, rows);
+    return new Chunk(from, to, rows, end == length);
+  }
+
+  /**
+   * Parses the rest of the file on the calling thread, one window at a time.
+   *
+   * @return int, the number of the row after the last one read.
+   */
+  private int parseSequentially(FileChannel channel, long position, long size, boolean[] wanted,
+      int rowNum, RowHandler handler) throws IOException {
+    MappedCSVReader reader = new MappedCSVReader(filePath, null);
+    long window = chunkSize;
+    while (position < size) {
+      int length = (int) Math.min(Math.min(window, size - position), Integer.MAX_VALUE - 8);
+      boolean last = position + length == size;
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      List<List<String>> rows = new ArrayList<>();
+      int consumed = reader.parseRange(buffer, length, last, wanted, Integer.MAX_VALUE, rows);
+      for (List<String> row : rows) {
+        handler.handle(rowNum, row);
+        rowNum++;
+      }
+      if (consumed == 0) {
+        // A single record is larger than the window; map a bigger one.
+        window *= 2;
+        continue;
+      }
+      position += consumed;
+      window = chunkSize;
+      if (position < size) {
+        handler.checkpoint(rowNum, position);
+      }
+    }
+    return rowNum;
+  }
+
+  /**
+   * Waits for the tasks still running, which may read the file, before the file is closed.
+   */
+  private static void awaitTermination(ForkJoinPool pool) throws IOException {
+    try {
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing the CSV file");
+    }
+  }
+
+  private static <T> T await(Future<T> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing the CSV file");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
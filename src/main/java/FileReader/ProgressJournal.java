@@ -0,0 +1,143 @@
+package FileReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A small journal in the output directory recording how far a run has got, so that a run that
+ * dies can be restarted from the first unfinished row instead of from row 1.
+ *
+ * <p>The first line identifies the CSV file by its size and modification time; every following
+ * line is a checkpoint "nextRow byteOffset", meaning every row before nextRow has been written and
+ * the record for nextRow starts at byteOffset. A journal written for a different CSV file, or a
+ * torn last line, is ignored. The journal is deleted once the run completes.
+ */
+public class ProgressJournal implements AutoCloseable {
+
+  /** The name of the journal file in the output directory. */
+  public static final String JOURNAL_NAME = ".progress.journal";
+
+  private final File file;
+  private final FileChannel channel;
+  private final int startRow;
+  private final long startOffset;
+
+  private ProgressJournal(File file, FileChannel channel, int startRow, long startOffset) {
+    this.file = file;
+    this.channel = channel;
+    this.startRow = startRow;
+    this.startOffset = startOffset;
+  }
+
+  /**
+   * Opens the journal for the given CSV file, picking up the last checkpoint of an earlier run.
+   *
+   * @param outputDir   String, directory where output files are saved.
+   * @param csvFilePath String representing the path to the CSV file.
+   * @return ProgressJournal, ready to record checkpoints.
+   * @throws IOException if the journal cannot be read or written.
+   */
+  public static ProgressJournal open(String outputDir, String csvFilePath) throws IOException {
+    return open(outputDir, JOURNAL_NAME, csvFilePath);
+  }
+
+  /**
+   * Opens a journal with the given file name, so several runs sharing an output directory can
+   * each keep their own.
+   *
+   * @param outputDir   String, directory where output files are saved.
+   * @param name        String, the file name of the journal.
+   * @param csvFilePath String representing the path to the CSV file.
+   * @return ProgressJournal, ready to record checkpoints.
+   * @throws IOException if the journal cannot be read or written.
+   */
+  public static ProgressJournal open(String outputDir, String name, String csvFilePath)
+      throws IOException {
+    File file = new File(outputDir, name);
+    File csv = new File(csvFilePath);
+    String identity = "csv " + csv.length() + " " + csv.lastModified();
+
+    int startRow = 1;
+    long startOffset = 0;
+    boolean sameCsv = false;
+    if (file.exists()) {
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      sameCsv = !lines.isEmpty() && lines.get(0).equals(identity);
+      for (int i = 1; sameCsv && i < lines.size(); i++) {
+        String[] parts = lines.get(i).split(" ");
+        if (parts.length == 2 && parts[0].matches("\\d+") && parts[1].matches("\\d+")) {
+          startRow = Integer.parseInt(parts[0]);
+          startOffset = Long.parseLong(parts[1]);
+        }
+      }
+    }
+
+    // Rewrite the journal with only the checkpoint that matters, which also drops a line
+    // torn by a crash in the middle of a write.
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    write(channel, identity);
+    if (startRow > 1) {
+      write(channel, startRow + " " + startOffset);
+    }
+    return new ProgressJournal(file, channel, startRow, startOffset);
+  }
+
+  /**
+   * Gets the first row that still has to be generated.
+   *
+   * @return int, the row to resume from, 1 if there is nothing to resume.
+   */
+  public int getStartRow() {
+    return startRow;
+  }
+
+  /**
+   * Gets the byte offset of the row returned by getStartRow.
+   *
+   * @return long, the byte offset in the CSV file.
+   */
+  public long getStartOffset() {
+    return startOffset;
+  }
+
+  /**
+   * Records a checkpoint and forces it to disk.
+   *
+   * @param nextRow    int, the number of the next row to be generated.
+   * @param byteOffset long, the byte offset in the CSV file where that row starts.
+   * @throws IOException if the journal cannot be written.
+   */
+  public void record(int nextRow, long byteOffset) throws IOException {
+    write(channel, nextRow + " " + byteOffset);
+    channel.force(false);
+  }
+
+  /**
+   * Marks the run as complete by deleting the journal.
+   *
+   * @throws IOException if the journal cannot be deleted.
+   */
+  public void complete() throws IOException {
+    channel.close();
+    Files.deleteIfExists(file.toPath());
+  }
+
+  private static void write(FileChannel channel, String line) throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -1,19 +1,38 @@
 package FileReader;
 
-import static FileWriter.TemplateProcessor.outputFiles;
+import static FileWriter.TemplateProcessor.createOutputDirectory;
 
 import CommandLine.CommandLineParser;
 import CommandLine.InvalidArgumentException;
+import FileWriter.DirectorySink;
+import FileWriter.OutputSink;
+import FileWriter.QueuedSink;
+import FileWriter.RunMetrics;
+import FileWriter.StreamSink;
+import FileWriter.TemplateLayout;
+import FileWriter.TemplateLayoutCache;
+import FileWriter.TemplateProcessor;
+import FileWriter.TimedSink;
+import FileWriter.WorkerPool;
+import FileWriter.ZipSink;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
 
 /**
  * The Reader class provides functionality for processing CSV files and templates
@@ -32,7 +51,7 @@ public class Reader {
   protected static List<String> readFileContent(String filePath) throws IOException {
     List<String> fileContent = new ArrayList<>();
 
-    try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+    try (BufferedReader br = new BufferedReader(new FileReader(filePath, StandardCharsets.UTF_8))) {
       String line;
       while ((line = br.readLine()) != null) {
         fileContent.add(line);
@@ -47,21 +66,14 @@ public class Reader {
 
 
   /**
-   * Parses a line of CSV content.
+   * Parses a line of CSV content. Quoted and unquoted fields are both supported, and a doubled
+   * quote inside a quoted field stands for one quote character.
    *
    * @param line String representing a line of CSV content.
    * @return List<String> containing the parsed values.
    */
   protected static List<String> parseCSVLine(String line) {
-    List<String> values = new ArrayList<>();
-    String regex = "\"([^\"]*?)\"";
-    Pattern pattern = Pattern.compile(regex);
-    Matcher matcher = pattern.matcher(line);
-    while (matcher.find()) {
-      String value = matcher.group(1);
-      values.add(value);
-    }
-    return values;
+    return CSVTokenizer.parseLine(line);
   }
 
 
@@ -73,51 +85,105 @@ public class Reader {
    * the number of the customer, and List<String> represents customer information.
    */
   protected static Map<Integer, List<String>> parseCSVContent(List<String> fileContent) {
-    Map<Integer, List<String>> mapPeople = new HashMap<>();
-    int peopleNum = 0;
+    RowTable table = new RowTable();
 
-    for (String line : fileContent) {
-      List<String> values = parseCSVLine(line);
-      mapPeople.put(peopleNum, values);
-      peopleNum++;
+    CSVChunkParsedEvent event = new CSVChunkParsedEvent();
+    event.begin();
+    String content = String.join("\n", fileContent);
+    CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(content));
+    try {
+      List<String> values;
+      while ((values = tokenizer.nextRecord()) != null) {
+        table.addRow(values);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Reading from a String cannot fail", e);
     }
-    return mapPeople;
+    event.finish(0, table.size(), content);
+    return table.asMap();
+  }
+
+
+
+  /**
+   * Reads the CSV file one record at a time and hands every parsed row to the given handler, so the
+   * file never has to be held in memory as a whole. Quoted fields may span several lines.
+   *
+   * @param filePath String representing the path to the CSV file.
+   * @param handler  RowHandler receiving each parsed row together with its row number.
+   * @return int, the number of rows read, including the header.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  public static int streamCSV(String filePath, RowHandler handler) throws IOException {
+    return streamCSV(filePath, handler, null);
   }
 
+  /**
+   * Reads the CSV file one record at a time and hands every parsed row to the given handler.
+   * Once the header has been read, only the fields of the wanted columns are materialized; the
+   * others are returned as null. Files of CSVSource.MAPPED_THRESHOLD bytes or more are read
+   * through a MappedCSVReader.
+   *
+   * @param filePath String representing the path to the CSV file.
+   * @param handler  RowHandler receiving each parsed row together with its row number.
+   * @param columns  Set<String> of header values whose columns are needed, or null for all.
+   * @return int, the number of rows read, including the header.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  public static int streamCSV(String filePath, RowHandler handler, Set<String> columns)
+      throws IOException {
+    CSVSource source = new CSVSource(filePath);
+    source.setColumns(columns);
+    source.forEachRow(handler);
+
+    return source.getRowsRead();
+  }
 
 
   /**
-   * Reads the content of the CSV file and parses it into a map.
+   * Reads the content of the CSV file and parses it into a map. The rows are held in a RowTable
+   * and the map is its read-only view.
    *
    * @param filePath String representing the path to the CSV file.
    * @return Map<Integer, List<String>> representing the content of the CSV file.
    * @throws IOException if an I/O error occurs while reading the file.
    */
   public static Map<Integer, List<String>> readCSV(String filePath) throws IOException {
-    List<String> fileContent = readFileContent(filePath);
+    RowTable table = new RowTable();
+    streamCSV(filePath, table);
 
-    return parseCSVContent(fileContent);
+    return table.asMap();
   }
 
 
   /**
-   * Reads the content of a template file.
+   * Reads the content of a template file. The file is read in one go and every line break, as
+   * well as the end of a last line without one, becomes System.lineSeparator().
    *
    * @param filePath String representing the path to the template file.
    * @return String containing the content of the template file.
    * @throws IOException if an I/O error occurs while reading the file.
    */
   public static String readTemplate(String filePath) throws IOException {
-    StringBuilder content = new StringBuilder();
-    try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-      String line;
-      while ((line = br.readLine()) != null) {
-
-        content.append(line).append(System.lineSeparator());
+    String text = new String(Files.readAllBytes(Path.of(filePath)), StandardCharsets.UTF_8);
+    if (text.isEmpty()) {
+      throw new IllegalArgumentException("Template file is empty");
+    }
+    String separator = System.lineSeparator();
+    StringBuilder content = new StringBuilder(text.length() + separator.length());
+    int lineStart = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || c == '\r') {
+        content.append(text, lineStart, i).append(separator);
+        if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+          i++;
+        }
+        lineStart = i + 1;
       }
     }
-    if (content.isEmpty()) {
-      throw new IllegalArgumentException("Template file is empty");
+    if (lineStart < text.length()) {
+      content.append(text, lineStart, text.length()).append(separator);
     }
     return content.toString();
   }
@@ -129,7 +195,16 @@ public class Reader {
    * @return Map<String, Integer> mapping CSV header values to their column indices.
    */
   public static Map<String, Integer> headerIndex(Map<Integer, List<String>> mapPeople){
-    List<String> header = mapPeople.get(0);
+    return headerIndex(mapPeople.get(0));
+  }
+
+  /**
+   * Creates a map of header values to their column indices from the header row alone.
+   *
+   * @param header List<String> containing the values of the CSV header row.
+   * @return Map<String, Integer> mapping CSV header values to their column indices.
+   */
+  public static Map<String, Integer> headerIndex(List<String> header){
     Map<String, Integer> indexMap = new HashMap<>();
     int index = 0;
     for (String s : header) {
@@ -138,8 +213,111 @@ public class Reader {
     }
     return indexMap;
   }
+
+  /**
+   * Works out which CSV columns have to be materialized so that the given placeholders can be
+   * rendered. Only the column each placeholder resolves to through the header index is kept.
+   *
+   * @param columns   Set<String> of placeholder names referenced by the templates.
+   * @param headerMap Map<String, Integer> mapping CSV header values to their column indices.
+   * @param width     int, the number of columns in the header.
+   * @return boolean[] flagging the columns to keep.
+   */
+  public static boolean[] projectColumns(Set<String> columns, Map<String, Integer> headerMap, int width) {
+    boolean[] wanted = new boolean[width];
+    for (String column : columns) {
+      Integer index = headerMap.get(column);
+      if (index != null) {
+        wanted[index] = true;
+      }
+    }
+    return wanted;
+  }
+
+  /**
+   * Reads the email and/or letter template(s) and any templates given with --template, in the
+   * order they are generated.
+   *
+   * @param parser CommandLineParser object containing parsed command line options.
+   * @return Map<String, String> template content keyed by the type of file to generate.
+   * @throws IOException if an I/O error occurs while reading a template.
+   */
+  protected static Map<String, String> readTemplates(CommandLineParser parser) throws IOException {
+    return readTemplates(parser, null);
+  }
+
   /**
-   * Processes email and/or letter template(s) based on the command line options provided.
+   * Reads the requested templates, going through a TemplateCache when one is given.
+   *
+   * @param parser CommandLineParser object containing parsed command line options.
+   * @param cache  TemplateCache holding templates read by earlier jobs, or null.
+   * @return Map<String, String> template content keyed by the type of file to generate.
+   * @throws IOException if an I/O error occurs while reading a template.
+   */
+  protected static Map<String, String> readTemplates(CommandLineParser parser, TemplateCache cache)
+      throws IOException {
+    Map<String, String> templates = new LinkedHashMap<>();
+
+    if (parser.hasOption("--email") && new File(parser.getPath("--email-template")).exists()) {
+      templates.put("email", readTemplate(parser.getPath("--email-template"), cache));
+    }
+
+    if (parser.hasOption("--letter") && new File(parser.getPath("--letter-template")).exists()) {
+      templates.put("letter", readTemplate(parser.getPath("--letter-template"), cache));
+    }
+
+    for (Map.Entry<String, String> template : parser.getTemplatePath().entrySet()) {
+      if (!templates.containsKey(template.getKey()) && new File(template.getValue()).exists()) {
+        templates.put(template.getKey(), readTemplate(template.getValue(), cache));
+      }
+    }
+
+    return templates;
+  }
+
+  private static String readTemplate(String filePath, TemplateCache cache) throws IOException {
+    return cache == null ? readTemplate(filePath) : cache.read(filePath);
+  }
+
+  /**
+   * Gets the layout of every template from the folder given with --template-cache.
+   *
+   * @param parser    CommandLineParser object containing parsed command line options.
+   * @param templates Map<String, String> template content keyed by the type of file to generate.
+   * @return Map<String, TemplateLayout> layouts keyed by the type of file, or null without
+   *         --template-cache.
+   * @throws IOException if the cache folder cannot be created or written.
+   */
+  private static Map<String, TemplateLayout> readLayouts(CommandLineParser parser,
+      Map<String, String> templates) throws IOException {
+    if (!parser.hasOption("--template-cache")) {
+      return null;
+    }
+    TemplateLayoutCache cache = new TemplateLayoutCache(parser.getPath("--template-cache"));
+    cache.setConsole(console(parser));
+    Map<String, TemplateLayout> layouts = new LinkedHashMap<>();
+    for (Map.Entry<String, String> template : templates.entrySet()) {
+      layouts.put(template.getKey(), cache.get(template.getValue()));
+    }
+    return layouts;
+  }
+
+  private static Set<String> referencedColumns(Map<String, String> templates,
+      Map<String, TemplateLayout> layouts) {
+    if (layouts == null) {
+      return TemplateProcessor.referencedColumns(templates.values());
+    }
+    Set<String> columns = new HashSet<>();
+    for (TemplateLayout layout : layouts.values()) {
+      columns.addAll(layout.getColumns());
+    }
+    return columns;
+  }
+
+  /**
+   * Processes email, letter and other template(s) based on the command line options provided. All
+   * templates are rendered for a row before moving on to the next one, so the rows are walked
+   * once and the output sink is shared.
    *
    * @param parser      CommandLineParser object containing parsed command line options.
    * @param csvContent  Map<Integer, List<String>> representing the content of the CSV file.
@@ -149,40 +327,316 @@ public class Reader {
   protected static void processTemplates(CommandLineParser parser, Map<Integer, List<String>> csvContent, Map<String, Integer> headerMap)
       throws IOException {
 
-    if (parser.hasOption("--email") && new File(parser.getPath("--email-template")).exists()) {
-      String outputDir = parser.getPath("--output-dir");
-      String emailTemplateFilePath = parser.getPath("--email-template");
-      String emailTemplateContent = readTemplate(emailTemplateFilePath);
-      outputFiles(csvContent, emailTemplateContent, outputDir, headerMap, "email");
+    generate(parser, readTemplates(parser), headerMap, null, renderer -> { }, handler -> {
+      int numRows = csvContent.size();
+      for (int i = 1; i < numRows; i++) {
+        handler.handle(i, csvContent.get(i));
+      }
+    });
+
+  }
+
+
+  /**
+   * Renders the requested templates for every row of the source and writes the results to the
+   * sink chosen on the command line: one file per document by default, a single archive in the
+   * output directory with --zip, or standard output with --stdout.
+   *
+   * @param parser    CommandLineParser object containing parsed command line options.
+   * @param templates Map<String, String> template content keyed by the type of file to generate.
+   * @param headerMap Map<String, Integer> mapping CSV header values to their column indices, or
+   *                  null to build it from the first row of the source.
+   * @param metrics   RunMetrics the write times are recorded in, or null.
+   * @param setup     Consumer<RowRenderer> giving the renderer the journal, template cache or
+   *                  metrics of the run.
+   * @param source    RowSource feeding the CSV rows.
+   * @throws IOException if an I/O error occurs while processing files.
+   */
+  protected static void generate(CommandLineParser parser, Map<String, String> templates,
+      Map<String, Integer> headerMap, RunMetrics metrics, Consumer<RowRenderer> setup,
+      RowSource source) throws IOException {
+    if (templates.isEmpty()) {
+      return;
     }
 
-    if (parser.hasOption("--letter") && new File(parser.getPath("--letter-template")).exists()) {
-      String outputDir = parser.getPath("--output-dir");
-      String letterTemplateFilePath = parser.getPath("--letter-template");
-      String letterTemplateContent = readTemplate(letterTemplateFilePath);
-      outputFiles(csvContent, letterTemplateContent, outputDir, headerMap, "letter");
+    try (OutputSink sink = queued(parser, openSink(parser), metrics)) {
+      RowRenderer renderer = new RowRenderer(templates, sink, headerMap);
+      setup.accept(renderer);
+      render(parser, renderer, source);
     }
+  }
 
+  /**
+   * Opens the output sink selected by the command line options.
+   *
+   * @param parser CommandLineParser object containing parsed command line options.
+   * @return OutputSink the documents are written to.
+   * @throws IOException if the output directory or archive cannot be created.
+   */
+  protected static OutputSink openSink(CommandLineParser parser) throws IOException {
+    if (parser.hasOption("--stdout")) {
+      return new StreamSink(System.out, false);
+    }
+    String outputDir = parser.getPath("--output-dir");
+    createOutputDirectory(outputDir);
+    if (parser.hasOption("--zip")) {
+      return new ZipSink(outputDir + File.separator + shardFileName(parser, ZipSink.ARCHIVE_NAME));
+    }
+    return new DirectorySink(outputDir);
   }
 
+  /**
+   * Puts a queue with writer threads of its own in front of the sink when --threads asks for
+   * worker threads, so writing overlaps with rendering and a slow disk holds the workers back
+   * instead of letting rendered documents pile up. The queue holds two batches per worker.
+   * Writes are timed by a TimedSink behind the queue, so they are measured where they happen.
+   *
+   * @param parser  CommandLineParser object containing parsed command line options.
+   * @param sink    OutputSink the documents are written to.
+   * @param metrics RunMetrics the write times are recorded in, or null.
+   * @return OutputSink to hand the documents to.
+   */
+  private static OutputSink queued(CommandLineParser parser, OutputSink sink, RunMetrics metrics) {
+    OutputSink timed = new TimedSink(sink, metrics);
+    int threads = parser.getThreads();
+    if (threads <= 1) {
+      return timed;
+    }
+    // An archive or a stream takes one document at a time, so more writers would only wait.
+    int writers = sink instanceof DirectorySink ? threads : 1;
+    return new QueuedSink(timed, writers, threads * parser.getBatchSize() * 2);
+  }
+
+  /**
+   * Feeds the rows of the source to the renderer, on worker threads if --threads asks for them,
+   * in batches of --batch-size rows.
+   *
+   * @param parser   CommandLineParser object containing parsed command line options.
+   * @param renderer RowRenderer rendering and writing each row.
+   * @param source   RowSource feeding the CSV rows.
+   * @throws IOException if an I/O error occurs while processing files.
+   */
+  private static void render(CommandLineParser parser, RowRenderer renderer, RowSource source)
+      throws IOException {
+    int threads = parser.getThreads();
+    if (threads <= 1) {
+      source.forEachRow(renderer);
+      return;
+    }
+    try (WorkerPool pool = new WorkerPool(threads)) {
+      renderer.setWorkerPool(pool);
+      renderer.setBatchSize(parser.getBatchSize());
+      source.forEachRow(renderer);
+      renderer.finish();
+      pool.await();
+    }
+  }
+
+
+  /**
+   * Checks whether --resume was given and can be honoured. Only runs writing one file per
+   * document can be resumed, since an archive or a stream cannot be appended to after a crash.
+   *
+   * @param parser CommandLineParser object containing parsed command line options.
+   * @return boolean value
+   */
+  private static boolean isResumable(CommandLineParser parser) {
+    if (!parser.hasOption("--resume") && !parser.hasOption("--incremental")) {
+      return false;
+    }
+    if (parser.hasOption("--zip") || parser.hasOption("--stdout")) {
+      console(parser).println("--resume and --incremental only apply to files written to --output-dir, ignoring them");
+      return false;
+    }
+    if (parser.hasOption("--resume") && parser.hasOption("--incremental")) {
+      console(parser).println("--incremental already skips files that are up to date, ignoring --resume");
+    }
+    return true;
+  }
+
+  /**
+   * Generates only the files whose row or template changed since the last incremental run into
+   * the output directory, and removes the files of rows that are no longer in the CSV file.
+   *
+   * @param parser    CommandLineParser object containing command line options.
+   * @param templates Map<String, String>, template content keyed by the type of file to generate.
+   * @param metrics   RunMetrics the write times are recorded in, or null.
+   * @param setup     Consumer<RowRenderer> giving the renderer the template cache or metrics.
+   * @param source    RowSource, the rows to generate files for.
+   * @throws IOException if an I/O error occurs while reading or writing.
+   */
+  private static void generateIncremental(CommandLineParser parser, Map<String, String> templates,
+      RunMetrics metrics, Consumer<RowRenderer> setup, RowSource source) throws IOException {
+    String outputDir = parser.getPath("--output-dir");
+    createOutputDirectory(outputDir);
+    DeltaManifest manifest = DeltaManifest.open(outputDir,
+        shardFileName(parser, DeltaManifest.MANIFEST_NAME));
+    try (OutputSink sink = queued(parser, new DirectorySink(outputDir), metrics)) {
+      RowRenderer renderer = new RowRenderer(templates, sink);
+      renderer.setManifest(manifest);
+      setup.accept(renderer);
+      render(parser, renderer, source);
+    }
+    manifest.save();
+    System.out.println("Skipped " + manifest.getSkipped() + " unchanged files, removed "
+        + manifest.getRemoved() + " files of rows that are gone");
+  }
 
   /**
    * Processes the CSV file provided in the command line arguments to generate
-   * output files (emails or letters) based on the data.
+   * output files (emails, letters or any --template type) based on the data. Rows are streamed
+   * from the file once and every template is rendered for each row as it arrives, so memory use
+   * does not grow with the size of the CSV. With --threads, parsing, rendering and writing
+   * overlap: batches of --batch-size rows are rendered by a pool of worker threads and the
+   * documents are written by writer threads behind a bounded queue. With --resume, progress is
+   * recorded in a ProgressJournal and a restarted run skips to the first unfinished row. With
+   * --metrics, --metrics-json or --progress, the stages of the run are measured and reported.
+   * With --shard k/n, only every n-th row starting at row k is generated. With --template-cache,
+   * the layouts of the templates are read from the given folder instead of scanning the
+   * templates. With --csv-cache, the rows are read from a ColumnarCache in the given folder
+   * instead of parsing the CSV file again.
    *
    * @param args String array containing command line arguments.
    * @throws InvalidArgumentException if there are issues with the provided command line arguments.
    * @throws IOException              if an I/O error occurs while processing files.
    */
   public static void processFiles(String[] args) throws InvalidArgumentException, IOException {
+    processFiles(args, null);
+  }
+
+  /**
+   * Processes the CSV file provided in the command line arguments like processFiles(String[]),
+   * reading and compiling templates through a TemplateCache shared by many jobs.
+   *
+   * @param args  String array containing command line arguments.
+   * @param cache TemplateCache holding templates of earlier jobs, or null.
+   * @return boolean, true if the arguments were valid and the files were generated.
+   * @throws InvalidArgumentException if there are issues with the provided command line arguments.
+   * @throws IOException              if an I/O error occurs while processing files.
+   */
+  public static boolean processFiles(String[] args, TemplateCache cache)
+      throws InvalidArgumentException, IOException {
 
       CommandLineParser parser = new CommandLineParser(args);
       if (parser.validateParser(parser) && new File(parser.getPath("--csv-file")).exists()) {
         String csvFilePath = parser.getPath("--csv-file");
-        Map<Integer, List<String>> csvContent = readCSV(csvFilePath);
-        Map<String, Integer> headerMap = headerIndex(csvContent);
-        processTemplates(parser, csvContent, headerMap);
+        Map<String, String> templates = readTemplates(parser, cache);
+        Map<String, TemplateLayout> layouts = readLayouts(parser, templates);
+        CSVSource source = new CSVSource(csvFilePath);
+        source.setColumns(referencedColumns(templates, layouts));
+        source.setParallelism(parser.getThreads());
+        if (parser.hasOption("--csv-cache")) {
+          Path folder = Files.createDirectories(Path.of(parser.getPath("--csv-cache")));
+          source.setCache(folder.resolve(new File(csvFilePath).getName() + ColumnarCache.EXTENSION));
+          source.setConsole(console(parser));
+        }
+
+        RunMetrics metrics = parser.hasOption("--metrics") || parser.hasOption("--metrics-json")
+            || parser.hasOption("--progress") ? new RunMetrics() : null;
+        ScheduledExecutorService progress = null;
+        if (parser.getProgressSeconds() > 0) {
+          progress = metrics.startProgress(parser.getProgressSeconds(), console(parser));
+        }
+        try {
+          generate(parser, templates, csvFilePath, source, metrics, renderer -> {
+            renderer.setTemplateCache(cache);
+            renderer.setLayouts(layouts);
+            renderer.setMetrics(metrics);
+            renderer.setShard(parser.getShardIndex(), parser.getShardCount());
+          });
+        } finally {
+          if (progress != null) {
+            progress.shutdownNow();
+          }
+        }
+        if (metrics != null) {
+          metrics.csvRead(new File(csvFilePath).length());
+          metrics.finish();
+          reportMetrics(parser, metrics);
+        }
+        return true;
+      }
+      return false;
+  }
+
+  /**
+   * Generates the files for the CSV file, incrementally with --incremental and with a progress
+   * journal with --resume.
+   *
+   * @param parser      CommandLineParser object containing command line options.
+   * @param templates   Map<String, String>, template content keyed by the type of file to generate.
+   * @param csvFilePath String representing the path to the CSV file.
+   * @param source      CSVSource reading the CSV file.
+   * @param metrics     RunMetrics the write times are recorded in, or null.
+   * @param setup       Consumer<RowRenderer> giving the renderer the template cache and metrics.
+   * @throws IOException if an I/O error occurs while processing files.
+   */
+  private static void generate(CommandLineParser parser, Map<String, String> templates,
+      String csvFilePath, CSVSource source, RunMetrics metrics, Consumer<RowRenderer> setup)
+      throws IOException {
+    if (templates.isEmpty() || !isResumable(parser)) {
+      generate(parser, templates, null, metrics, setup, source);
+      return;
+    }
+    if (parser.hasOption("--incremental")) {
+      generateIncremental(parser, templates, metrics, setup, source);
+      return;
+    }
+
+    String outputDir = parser.getPath("--output-dir");
+    createOutputDirectory(outputDir);
+    try (ProgressJournal journal = ProgressJournal.open(outputDir,
+        shardFileName(parser, ProgressJournal.JOURNAL_NAME), csvFilePath)) {
+      if (journal.getStartRow() > 1) {
+        System.out.println("Resuming from row " + journal.getStartRow());
+        source.setStart(journal.getStartRow(), journal.getStartOffset());
       }
+      generate(parser, templates, null, metrics,
+          setup.andThen(renderer -> renderer.setJournal(journal)), source);
+      journal.complete();
+    }
+  }
+
+  /**
+   * Prints the metrics summary with --metrics or --progress and saves them with --metrics-json,
+   * creating the folder of the JSON file if needed.
+   *
+   * @param parser  CommandLineParser object containing command line options.
+   * @param metrics RunMetrics of the finished run.
+   * @throws IOException if the JSON file cannot be written.
+   */
+  private static void reportMetrics(CommandLineParser parser, RunMetrics metrics)
+      throws IOException {
+    if (parser.hasOption("--metrics") || parser.hasOption("--progress")) {
+      console(parser).println(metrics.summary());
+    }
+    if (parser.hasOption("--metrics-json")) {
+      Path file = Path.of(parser.getPath("--metrics-json"));
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, metrics.toJson() + System.lineSeparator(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Gives a file that every run keeps in the output directory its own name per shard, e.g.
+   * documents-3of8.zip for --shard 3/8, so runs sharing the directory do not overwrite it.
+   *
+   * @param parser CommandLineParser object containing command line options.
+   * @param name   String, the file name used without --shard.
+   * @return String, the file name for the shard of this run.
+   */
+  static String shardFileName(CommandLineParser parser, String name) {
+    if (parser.getShardCount() <= 1) {
+      return name;
+    }
+    String suffix = "-" + parser.getShardIndex() + "of" + parser.getShardCount();
+    int dot = name.lastIndexOf('.');
+    return dot > 0 ? name.substring(0, dot) + suffix + name.substring(dot) : name + suffix;
+  }
+
+  // Reports must not end up in the documents written to standard output with --stdout.
+  private static PrintStream console(CommandLineParser parser) {
+    return parser.hasOption("--stdout") ? System.err : System.out;
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package FileReader;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Callback used by Reader.streamCSV to hand over one parsed CSV row at a time.
+ */
+@FunctionalInterface
+public interface RowHandler {
+
+  /**
+   * Handles a single parsed CSV row.
+   *
+   * @param rowNumber int, the number of the row in the file (0 is the header).
+   * @param row       List<String>, the parsed values of the row.
+   * @throws IOException if an I/O error occurs while handling the row.
+   */
+  void handle(int rowNumber, List<String> row) throws IOException;
+
+  /**
+   * Called by sources that can resume, between rows, to report how far they have read. Every row
+   * before nextRow has been handed over, and the next record starts at byteOffset in the file.
+   *
+   * @param nextRow    int, the number of the next row to be handled.
+   * @param byteOffset long, the byte offset in the file where that row starts.
+   * @throws IOException if an I/O error occurs while recording the checkpoint.
+   */
+  default void checkpoint(int nextRow, long byteOffset) throws IOException {
+  }
+}
@@ -0,0 +1,271 @@
+package FileReader;
+
+import static FileWriter.TemplateProcessor.outputRow;
+
+import FileWriter.CompiledTemplate;
+import FileWriter.OutputSink;
+import FileWriter.RunMetrics;
+import FileWriter.TemplateLayout;
+import FileWriter.WorkerPool;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A RowHandler that renders every requested template for each CSV row as soon as the row is
+ * parsed, so only one row has to be held in memory at a time. Row 0 is treated as the header and
+ * used to build the header index for the rows that follow. Templates are compiled once, when the
+ * first data row arrives. When a WorkerPool is given, rows are collected into batches of the batch
+ * size and each batch is rendered and written on one of its workers instead of the calling
+ * thread; finish hands over the last, partial batch. Rendered documents are handed to an
+ * OutputSink.
+ *
+ * <p>When a ProgressJournal is given, checkpoints reported by the source are recorded in it once
+ * all rows before them have been written and the sink has been flushed. When a DeltaManifest is
+ * given, the documents of rows whose files it reports as current are neither rendered nor
+ * written. When RunMetrics are given, parsed rows, CSV bytes read and the time taken to render
+ * every document are recorded in them. When a shard is set, only the rows of that shard are
+ * rendered; files keep the numbers of their rows.
+ */
+public class RowRenderer implements RowHandler {
+
+  private final Map<String, String> templates;
+  private final OutputSink sink;
+  private Map<String, Integer> headerMap;
+  private Map<String, CompiledTemplate> compiled;
+  private WorkerPool pool;
+  private ProgressJournal journal;
+  private DeltaManifest manifest;
+  private Map<String, Long> templateHashes;
+  private TemplateCache cache;
+  private Map<String, TemplateLayout> layouts;
+  private RunMetrics metrics;
+  private int shard = 1;
+  private int shards = 1;
+  private int batchSize = 1;
+  private List<List<String>> batchRows = new ArrayList<>();
+  private int[] batchNumbers = new int[1];
+
+  /**
+   * Creates a renderer whose header index is built from the first row it receives.
+   *
+   * @param templates Map<String, String>, template content keyed by the type of file to generate.
+   * @param sink      OutputSink, where the rendered documents are written.
+   */
+  public RowRenderer(Map<String, String> templates, OutputSink sink) {
+    this(templates, sink, null);
+  }
+
+  /**
+   * Creates a renderer with a header index that is already known.
+   *
+   * @param templates Map<String, String>, template content keyed by the type of file to generate.
+   * @param sink      OutputSink, where the rendered documents are written.
+   * @param headerMap Map<String, Integer>, mapping of CSV header values to their column indices.
+   */
+  public RowRenderer(Map<String, String> templates, OutputSink sink,
+      Map<String, Integer> headerMap) {
+    this.templates = templates;
+    this.sink = sink;
+    this.headerMap = headerMap;
+  }
+
+  @Override
+  public void handle(int rowNumber, List<String> row) throws IOException {
+    if (rowNumber == 0) {
+      if (headerMap == null) {
+        headerMap = Reader.headerIndex(row);
+      }
+      return;
+    }
+    if (metrics != null) {
+      metrics.rowParsed();
+    }
+    if (shards > 1 && (rowNumber - 1) % shards != shard - 1) {
+      return;
+    }
+    if (compiled == null) {
+      compiled = compileTemplates();
+    }
+    if (pool == null) {
+      outputAll(row, rowNumber);
+      return;
+    }
+    batchNumbers[batchRows.size()] = rowNumber;
+    batchRows.add(row);
+    if (batchRows.size() == batchSize) {
+      submitBatch();
+    }
+  }
+
+  /**
+   * Hands the rows collected so far to the worker pool as one task.
+   *
+   * @throws IOException if an earlier task failed.
+   */
+  private void submitBatch() throws IOException {
+    if (batchRows.isEmpty()) {
+      return;
+    }
+    List<List<String>> rows = batchRows;
+    int[] numbers = batchNumbers;
+    batchRows = new ArrayList<>(batchSize);
+    batchNumbers = new int[batchSize];
+    pool.submit(() -> {
+      for (int i = 0; i < rows.size(); i++) {
+        outputAll(rows.get(i), numbers[i]);
+      }
+    });
+  }
+
+  /**
+   * Hands the last, partial batch to the worker pool once the source has no more rows. The
+   * caller still has to wait for the pool.
+   *
+   * @throws IOException if an earlier task failed.
+   */
+  public void finish() throws IOException {
+    if (pool != null) {
+      submitBatch();
+    }
+  }
+
+  /**
+   * Sets the worker pool used to render rows in parallel.
+   *
+   * @param pool WorkerPool, the pool to submit rows to, or null to render on the calling thread.
+   */
+  public void setWorkerPool(WorkerPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Sets how many rows are handed to a worker of the pool at a time.
+   *
+   * @param batchSize int, the number of rows in a batch, at least 1.
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+    this.batchNumbers = new int[this.batchSize];
+  }
+
+  /**
+   * Sets the journal that checkpoints are recorded in.
+   *
+   * @param journal ProgressJournal, the journal of the run, or null to ignore checkpoints.
+   */
+  public void setJournal(ProgressJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Sets the manifest used to skip files whose row and template did not change.
+   *
+   * @param manifest DeltaManifest, the manifest of the output directory, or null to generate all.
+   */
+  public void setManifest(DeltaManifest manifest) {
+    this.manifest = manifest;
+  }
+
+  /**
+   * Sets the cache that templates are compiled through.
+   *
+   * @param cache TemplateCache shared with earlier jobs, or null to compile every template.
+   */
+  public void setTemplateCache(TemplateCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Sets the layouts the templates are compiled from, saving a scan of their text.
+   *
+   * @param layouts Map<String, TemplateLayout>, layouts keyed by the type of file, or null to scan
+   *                every template.
+   */
+  public void setLayouts(Map<String, TemplateLayout> layouts) {
+    this.layouts = layouts;
+  }
+
+  /**
+   * Sets the metrics that the stages of the run are recorded in.
+   *
+   * @param metrics RunMetrics of the run, or null to record nothing.
+   */
+  public void setMetrics(RunMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Restricts rendering to one shard of the rows: rows shard, shard + shards, shard + 2 * shards
+   * and so on.
+   *
+   * @param shard  int, the shard to render, numbered from 1.
+   * @param shards int, the number of shards the rows are split into.
+   */
+  public void setShard(int shard, int shards) {
+    this.shard = shard;
+    this.shards = shards;
+  }
+
+  @Override
+  public void checkpoint(int nextRow, long byteOffset) throws IOException {
+    if (metrics != null) {
+      metrics.csvRead(byteOffset);
+    }
+    if (journal == null) {
+      return;
+    }
+    if (pool != null) {
+      submitBatch();
+      pool.await();
+    }
+    sink.flush();
+    journal.record(nextRow, byteOffset);
+  }
+
+  /**
+   * Renders and writes every template for one row.
+   *
+   * @param row       List<String>, the parsed values of the row.
+   * @param rowNumber int, the number of the row in the file.
+   * @throws IOException if an I/O error occurs while writing.
+   */
+  private void outputAll(List<String> row, int rowNumber) throws IOException {
+    for (Map.Entry<String, CompiledTemplate> template : compiled.entrySet()) {
+      String type = template.getKey();
+      if (manifest == null) {
+        outputRow(template.getValue(), row, sink, type, rowNumber, metrics);
+        continue;
+      }
+      long hash = DeltaManifest.hashRow(templateHashes.get(type), row);
+      if (!manifest.isCurrent(type, rowNumber, hash)) {
+        outputRow(template.getValue(), row, sink, type, rowNumber, metrics);
+        manifest.record(type, rowNumber, hash);
+      }
+    }
+  }
+
+  /**
+   * Compiles every template against the header index.
+   *
+   * @return Map<String, CompiledTemplate>, compiled templates keyed by the type of file.
+   */
+  private Map<String, CompiledTemplate> compileTemplates() {
+    Map<String, CompiledTemplate> result = new LinkedHashMap<>();
+    templateHashes = new LinkedHashMap<>();
+    for (Map.Entry<String, String> template : templates.entrySet()) {
+      TemplateLayout layout = layouts == null ? null : layouts.get(template.getKey());
+      if (cache != null) {
+        result.put(template.getKey(), cache.compile(template.getValue(), headerMap));
+      } else if (layout != null) {
+        result.put(template.getKey(), CompiledTemplate.compile(layout, headerMap));
+      } else {
+        result.put(template.getKey(), CompiledTemplate.compile(template.getValue(), headerMap));
+      }
+      templateHashes.put(template.getKey(), DeltaManifest.hashTemplate(template.getValue(), headerMap));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,19 @@
+package FileReader;
+
+import java.io.IOException;
+
+/**
+ * A source of parsed CSV rows, such as a CSV file being streamed or a map that has already been
+ * read, that feeds its rows in order to a RowHandler.
+ */
+@FunctionalInterface
+public interface RowSource {
+
+  /**
+   * Hands every row, header first, to the given handler.
+   *
+   * @param handler RowHandler receiving each row together with its row number.
+   * @throws IOException if an I/O error occurs while reading or handling rows.
+   */
+  void forEachRow(RowHandler handler) throws IOException;
+}
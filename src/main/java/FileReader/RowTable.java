@@ -0,0 +1,204 @@
+package FileReader;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact, array-backed table of CSV rows. All field characters live in one shared char arena;
+ * a dense int array holds the end offset of every field, and another holds the end field of every
+ * row. Compared with a HashMap of boxed row numbers to ArrayLists of Strings, a row costs one int
+ * and a field one int plus its characters.
+ *
+ * <p>Row 0 is the header. Fields that were not materialized (null) are remembered in a BitSet. A
+ * table is filled from one thread and may then be read from several threads. Reader.readCSV
+ * returns a table through asMap, so callers that walk the rows by number, like
+ * TemplateProcessor.outputFiles, index into the arrays instead of hashing.
+ */
+public class RowTable implements RowHandler {
+
+  private char[] arena = new char[1 << 16];
+  private int arenaSize;
+  private int[] fieldEnds = new int[1 << 10];
+  private int fieldCount;
+  private int[] rowEnds = new int[1 << 8];
+  private int rowCount;
+  private final BitSet nullFields = new BitSet();
+
+  /**
+   * Appends a row to the table.
+   *
+   * @param row List<String>, the values of the row; null values are kept as null.
+   */
+  public void addRow(List<String> row) {
+    for (String value : row) {
+      addField(value);
+    }
+    if (rowCount == rowEnds.length) {
+      rowEnds = Arrays.copyOf(rowEnds, rowCount * 2);
+    }
+    rowEnds[rowCount++] = fieldCount;
+  }
+
+  /**
+   * Appends the row, which must be the next one: rows are numbered from 0 without gaps.
+   */
+  @Override
+  public void handle(int rowNumber, List<String> row) {
+    if (rowNumber != rowCount) {
+      throw new IllegalArgumentException("Expected row " + rowCount + " but got " + rowNumber);
+    }
+    addRow(row);
+  }
+
+  private void addField(String value) {
+    if (value == null) {
+      nullFields.set(fieldCount);
+    } else {
+      int length = value.length();
+      if (arenaSize + length < 0) {
+        throw new IllegalStateException("Row table is limited to " + Integer.MAX_VALUE + " characters");
+      }
+      if (arenaSize + length > arena.length) {
+        arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8,
+            Math.max((long) arena.length * 2, (long) arenaSize + length)));
+      }
+      value.getChars(0, length, arena, arenaSize);
+      arenaSize += length;
+    }
+    if (fieldCount == fieldEnds.length) {
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+    fieldEnds[fieldCount++] = arenaSize;
+  }
+
+  /**
+   * Gets the number of rows, including the header.
+   *
+   * @return int, the number of rows.
+   */
+  public int size() {
+    return rowCount;
+  }
+
+  /**
+   * Gets the number of fields in a row.
+   *
+   * @param row int, the number of the row.
+   * @return int, the number of fields in the row.
+   */
+  public int width(int row) {
+    return rowEnds[row] - firstField(row);
+  }
+
+  /**
+   * Gets the value of a field.
+   *
+   * @param row    int, the number of the row.
+   * @param column int, the index of the column.
+   * @return String, the value, or null if the field is null or the row is shorter.
+   */
+  public String get(int row, int column) {
+    if (column < 0 || column >= width(row)) {
+      return null;
+    }
+    int field = firstField(row) + column;
+    if (nullFields.get(field)) {
+      return null;
+    }
+    int start = field == 0 ? 0 : fieldEnds[field - 1];
+    return new String(arena, start, fieldEnds[field] - start);
+  }
+
+  /**
+   * Gets a read-only List view of a row. Values are copied out of the arena on access.
+   *
+   * @param row int, the number of the row.
+   * @return List<String>, the values of the row.
+   */
+  public List<String> row(int row) {
+    int width = width(row);
+    return new AbstractList<>() {
+      @Override
+      public String get(int column) {
+        if (column < 0 || column >= width) {
+          throw new IndexOutOfBoundsException("Column " + column + " of " + width);
+        }
+        return RowTable.this.get(row, column);
+      }
+
+      @Override
+      public int size() {
+        return width;
+      }
+    };
+  }
+
+  /**
+   * Gets a read-only Map view of the table, keyed by row number like the map Reader.readCSV
+   * used to build. Looking a row up is an array access; no entry, boxed key or list is kept per
+   * row.
+   *
+   * @return Map<Integer, List<String>>, the rows by number, with the header as row 0.
+   */
+  public Map<Integer, List<String>> asMap() {
+    return new AbstractMap<>() {
+      @Override
+      public List<String> get(Object key) {
+        return containsKey(key) ? row((Integer) key) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return key instanceof Integer && (Integer) key >= 0 && (Integer) key < rowCount;
+      }
+
+      @Override
+      public int size() {
+        return rowCount;
+      }
+
+      @Override
+      public Set<Entry<Integer, List<String>>> entrySet() {
+        return new AbstractSet<>() {
+          @Override
+          public Iterator<Entry<Integer, List<String>>> iterator() {
+            return new Iterator<>() {
+              private int next;
+
+              @Override
+              public boolean hasNext() {
+                return next < rowCount;
+              }
+
+              @Override
+              public Entry<Integer, List<String>> next() {
+                if (next >= rowCount) {
+                  throw new NoSuchElementException();
+                }
+                int row = next++;
+                return new SimpleImmutableEntry<>(row, row(row));
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return rowCount;
+          }
+        };
+      }
+    };
+  }
+
+  private int firstField(int row) {
+    return row == 0 ? 0 : rowEnds[row - 1];
+  }
+}
@@ -0,0 +1,115 @@
+package FileReader;
+
+import FileWriter.CompiledTemplate;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps recently used templates in memory for a process that runs many jobs, so a template is
+ * read and compiled again only when its file changes. Template text is cached by path and
+ * revalidated against the modification time and size of the file; compiled templates are cached
+ * by template text and header index. Both caches evict the least recently used entry once they
+ * hold more than the given capacity. All methods are safe to call from several threads.
+ */
+public class TemplateCache {
+
+  /** The number of entries kept by the cache created for the job server. */
+  public static final int DEFAULT_CAPACITY = 64;
+
+  private final Map<String, CachedText> texts;
+  private final Map<List<Object>, CompiledTemplate> compiled;
+  private int hits;
+  private int misses;
+
+  private static final class CachedText {
+    private final long lastModified;
+    private final long length;
+    private final String content;
+
+    private CachedText(long lastModified, long length, String content) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.content = content;
+    }
+  }
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param capacity int, the most templates kept in each of the text and compiled caches.
+   */
+  public TemplateCache(int capacity) {
+    this.texts = lruMap(capacity);
+    this.compiled = lruMap(capacity);
+  }
+
+  private static <K, V> Map<K, V> lruMap(int capacity) {
+    return new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Reads a template, reusing the cached content while the file is unchanged.
+   *
+   * @param filePath String representing the path to the template file.
+   * @return String containing the content of the template file.
+   * @throws IOException if an I/O error occurs while reading the file.
+   */
+  public synchronized String read(String filePath) throws IOException {
+    File file = new File(filePath);
+    long lastModified = file.lastModified();
+    long length = file.length();
+    CachedText cached = texts.get(filePath);
+    if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+      hits++;
+      return cached.content;
+    }
+    misses++;
+    String content = Reader.readTemplate(filePath);
+    texts.put(filePath, new CachedText(lastModified, length, content));
+    return content;
+  }
+
+  /**
+   * Compiles a template against a header index, reusing an earlier compilation of the same
+   * template and header.
+   *
+   * @param template  String, the template content.
+   * @param headerMap Map<String, Integer>, mapping of CSV header values to their column indices.
+   * @return CompiledTemplate ready to render rows of a CSV file with that header.
+   */
+  public synchronized CompiledTemplate compile(String template, Map<String, Integer> headerMap) {
+    List<Object> key = List.of(template, Map.copyOf(headerMap));
+    CompiledTemplate result = compiled.get(key);
+    if (result == null) {
+      result = CompiledTemplate.compile(template, headerMap);
+      compiled.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the number of reads served from the cache.
+   *
+   * @return int, the number of cache hits.
+   */
+  public synchronized int getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of reads that had to go to the file.
+   *
+   * @return int, the number of cache misses.
+   */
+  public synchronized int getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,428 @@
+package FileWriter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * A template that has been compiled once into an immutable render plan: a tree of literal,
+ * field, formatted field and conditional nodes, so that rendering a row is a single append pass
+ * instead of a regex scan and one String.replace per placeholder. A row can also be rendered
+ * straight to UTF-8 bytes, with the literals encoded once when the template is compiled.
+ *
+ * <p>Besides [[column]], a template may use:
+ * <ul>
+ *   <li>[[column|filter|filter:argument]] to format a value. The filters are upper, lower,
+ *       default:text (used when the value is empty or the column is missing), date:pattern
+ *       (formats an ISO date such as 2024-03-01 with an English DateTimeFormatter pattern) and
+ *       currency or currency:language-COUNTRY (formats a number as an amount, en-US by default).
+ *       A value a filter cannot parse is kept as it is.</li>
+ *   <li>[[#if column]], [[#if column == value]] or [[#if column != value]], then optionally
+ *       [[#else]], then [[/if]], to render a section only for some rows. A bare column is true
+ *       when its value is not empty. Sections may be nested.</li>
+ * </ul>
+ * Placeholders whose column is unknown or missing from the row are kept as they are.
+ */
+public class CompiledTemplate {
+
+  static final Pattern PLACEHOLDER = Pattern.compile("\\[\\[([^\\[\\]]*?)\\]\\]");
+  private static final int UNKNOWN_COLUMN = -1;
+  private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+  private static final ThreadLocal<Utf8Buffer> UTF8_BUFFER = ThreadLocal.withInitial(Utf8Buffer::new);
+
+  private final Node[] plan;
+  private final String[] names;
+  private final int expectedLength;
+
+  /**
+   * One step of a render plan. Nodes are immutable and shared by all threads.
+   */
+  private interface Node {
+    void render(List<String> rowData, StringBuilder out);
+
+    void render(List<String> rowData, Utf8Buffer out);
+
+    /** The number of characters the node adds to the buffer capacity reserved up front. */
+    int expectedLength();
+  }
+
+  private static final class Literal implements Node {
+    private final String text;
+    private final byte[] utf8;
+
+    private Literal(String text) {
+      this.text = text;
+      this.utf8 = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void render(List<String> rowData, StringBuilder out) {
+      out.append(text);
+    }
+
+    @Override
+    public void render(List<String> rowData, Utf8Buffer out) {
+      out.append(utf8, text.length());
+    }
+
+    @Override
+    public int expectedLength() {
+      return text.length();
+    }
+  }
+
+  /** [[column]], copied as it is. */
+  private static final class Field implements Node {
+    private final String tag;
+    private final int index;
+
+    private Field(String tag, int index) {
+      this.tag = tag;
+      this.index = index;
+    }
+
+    @Override
+    public void render(List<String> rowData, StringBuilder out) {
+      String value = value(rowData, index);
+      out.append(value == null ? tag : value);
+    }
+
+    @Override
+    public void render(List<String> rowData, Utf8Buffer out) {
+      String value = value(rowData, index);
+      out.append(value == null ? tag : value);
+    }
+
+    @Override
+    public int expectedLength() {
+      return 16;
+    }
+  }
+
+  /** [[column|filter...]], with the filters composed into one and applied in order. */
+  private static final class Formatted implements Node {
+    private final String tag;
+    private final int index;
+    private final UnaryOperator<String> filter;
+
+    private Formatted(String tag, int index, UnaryOperator<String> filter) {
+      this.tag = tag;
+      this.index = index;
+      this.filter = filter;
+    }
+
+    @Override
+    public void render(List<String> rowData, StringBuilder out) {
+      out.append(format(value(rowData, index)));
+    }
+
+    @Override
+    public void render(List<String> rowData, Utf8Buffer out) {
+      out.append(format(value(rowData, index)));
+    }
+
+    private String format(String value) {
+      value = filter.apply(value);
+      return value == null ? tag : value;
+    }
+
+    @Override
+    public int expectedLength() {
+      return 16;
+    }
+  }
+
+  /** [[#if ...]] with the plans of both branches. */
+  private static final class Conditional implements Node {
+    private final int index;
+    private final String operator;
+    private final String operand;
+    private final Node[] then;
+    private final Node[] otherwise;
+
+    private Conditional(int index, String operator, String operand, Node[] then, Node[] otherwise) {
+      this.index = index;
+      this.operator = operator;
+      this.operand = operand;
+      this.then = then;
+      this.otherwise = otherwise;
+    }
+
+    private boolean test(String value) {
+      if (operator == null) {
+        return value != null && !value.isEmpty();
+      }
+      boolean equal = operand.equals(value);
+      return operator.equals("==") == equal;
+    }
+
+    @Override
+    public void render(List<String> rowData, StringBuilder out) {
+      for (Node node : test(value(rowData, index)) ? then : otherwise) {
+        node.render(rowData, out);
+      }
+    }
+
+    @Override
+    public void render(List<String> rowData, Utf8Buffer out) {
+      for (Node node : test(value(rowData, index)) ? then : otherwise) {
+        node.render(rowData, out);
+      }
+    }
+
+    @Override
+    public int expectedLength() {
+      return Math.max(CompiledTemplate.expectedLength(then), CompiledTemplate.expectedLength(otherwise));
+    }
+  }
+
+  /** The nodes of one branch being compiled, and the condition that opened it. */
+  private static final class Section {
+    private final String[] condition;
+    private final List<Node> then = new ArrayList<>();
+    private List<Node> otherwise;
+
+    private Section(String[] condition) {
+      this.condition = condition;
+    }
+
+    private List<Node> nodes() {
+      return otherwise == null ? then : otherwise;
+    }
+  }
+
+  private CompiledTemplate(Node[] plan, String[] names) {
+    this.plan = plan;
+    this.names = names;
+    this.expectedLength = expectedLength(plan);
+  }
+
+  private static int expectedLength(Node[] nodes) {
+    int length = 0;
+    for (Node node : nodes) {
+      length += node.expectedLength();
+    }
+    return length;
+  }
+
+  private static String value(List<String> rowData, int index) {
+    return index == UNKNOWN_COLUMN || index >= rowData.size() ? null : rowData.get(index);
+  }
+
+  /**
+   * Compiles the template against the CSV header.
+   *
+   * @param template   String, the template content.
+   * @param headerMap   Map<String, Integer>, mapping of CSV header values to their column indices.
+   * @return CompiledTemplate, the compiled template.
+   * @throws IllegalArgumentException   if the template contains no placeholders, an unknown
+   *                                    filter, or sections that are not closed properly.
+   */
+  public static CompiledTemplate compile(String template, Map<String, Integer> headerMap) {
+    return compile(TemplateLayout.parse(template), headerMap);
+  }
+
+  /**
+   * Compiles a template that has already been scanned against the CSV header.
+   *
+   * @param layout   TemplateLayout of the template.
+   * @param headerMap   Map<String, Integer>, mapping of CSV header values to their column indices.
+   * @return CompiledTemplate, the compiled template.
+   * @throws IllegalArgumentException   if the template contains no placeholders or an unknown
+   *                                    filter.
+   */
+  public static CompiledTemplate compile(TemplateLayout layout, Map<String, Integer> headerMap) {
+    List<String> names = new ArrayList<>();
+    Deque<Section> sections = new ArrayDeque<>();
+    sections.push(new Section(null));
+    for (int i = 0; i < layout.size(); i++) {
+      String[] values = layout.values(i);
+      switch (layout.kind(i)) {
+        case TemplateLayout.LITERAL:
+          sections.peek().nodes().add(new Literal(values[0]));
+          break;
+        case TemplateLayout.FIELD:
+          names.add(values[1]);
+          sections.peek().nodes().add(valueNode(values, headerMap));
+          break;
+        case TemplateLayout.IF:
+          names.add(values[1]);
+          sections.push(new Section(values));
+          break;
+        case TemplateLayout.ELSE:
+          sections.peek().otherwise = new ArrayList<>();
+          break;
+        default:
+          Section section = sections.pop();
+          sections.peek().nodes().add(conditional(section, headerMap));
+          break;
+      }
+    }
+    if (names.isEmpty()) {
+      throw new IllegalArgumentException("No placeholders found in the input string.");
+    }
+    return new CompiledTemplate(sections.peek().nodes().toArray(new Node[0]),
+        names.toArray(new String[0]));
+  }
+
+  private static int column(Map<String, Integer> headerMap, String name) {
+    Integer index = headerMap.get(name);
+    return index == null ? UNKNOWN_COLUMN : index;
+  }
+
+  private static Node conditional(Section section, Map<String, Integer> headerMap) {
+    return new Conditional(column(headerMap, section.condition[1]), section.condition[2],
+        section.condition[3], section.then.toArray(new Node[0]),
+        section.otherwise == null ? new Node[0] : section.otherwise.toArray(new Node[0]));
+  }
+
+  private static Node valueNode(String[] values, Map<String, Integer> headerMap) {
+    int index = column(headerMap, values[1]);
+    if (values.length == 2) {
+      return new Field(values[0], index);
+    }
+    UnaryOperator<String> filter = filter(values[2]);
+    for (int i = 3; i < values.length; i++) {
+      UnaryOperator<String> first = filter;
+      UnaryOperator<String> then = filter(values[i]);
+      filter = value -> then.apply(first.apply(value));
+    }
+    return new Formatted(values[0], index, filter);
+  }
+
+  /**
+   * Builds a filter from its specification, e.g. upper or date:d MMMM yyyy. Filters receive null
+   * for a missing value and pass it on, except default.
+   */
+  private static UnaryOperator<String> filter(String spec) {
+    int colon = spec.indexOf(':');
+    String name = (colon < 0 ? spec : spec.substring(0, colon)).trim();
+    String argument = colon < 0 ? null : spec.substring(colon + 1);
+    switch (name) {
+      case "upper":
+        return value -> value == null ? null : value.toUpperCase(Locale.ROOT);
+      case "lower":
+        return value -> value == null ? null : value.toLowerCase(Locale.ROOT);
+      case "default":
+        String fallback = argument == null ? "" : argument;
+        return value -> value == null || value.isEmpty() ? fallback : value;
+      case "date":
+        if (argument == null) {
+          throw new IllegalArgumentException("The date filter needs a pattern, e.g. date:d MMMM yyyy");
+        }
+        DateTimeFormatter format = DateTimeFormatter.ofPattern(argument.trim(), Locale.ENGLISH);
+        return value -> formatDate(value, format);
+      case "currency":
+        Locale locale = argument == null ? Locale.US : Locale.forLanguageTag(argument.trim());
+        NumberFormat prototype = NumberFormat.getCurrencyInstance(locale);
+        // NumberFormat is not thread-safe, so every worker thread formats with its own copy.
+        ThreadLocal<NumberFormat> formats = ThreadLocal.withInitial(() -> (NumberFormat) prototype.clone());
+        return value -> formatCurrency(value, formats.get());
+      default:
+        throw new IllegalArgumentException("Unknown filter in the template: " + name);
+    }
+  }
+
+  private static String formatDate(String value, DateTimeFormatter format) {
+    if (value == null || value.isBlank()) {
+      return value;
+    }
+    try {
+      return LocalDate.parse(value.trim()).format(format);
+    } catch (DateTimeParseException e) {
+      return value;
+    }
+  }
+
+  private static String formatCurrency(String value, NumberFormat format) {
+    if (value == null || value.isBlank()) {
+      return value;
+    }
+    try {
+      return format.format(new BigDecimal(value.trim().replace(",", "").replace("$", "")));
+    } catch (NumberFormatException e) {
+      return value;
+    }
+  }
+
+  /**
+   * Gets the columns a template reads, in the order they appear, without compiling it against a
+   * header.
+   *
+   * @param template   String, the template content.
+   * @return Set<String>, the column names used by placeholders and conditions.
+   */
+  public static Set<String> columns(String template) {
+    return TemplateLayout.parse(template).getColumns();
+  }
+
+  /**
+   * Appends the template rendered with the given row to the buffer. Placeholders whose column is
+   * unknown or missing from the row are kept as they are.
+   *
+   * @param rowData   List<String>, the data of a CSV row.
+   * @param out   StringBuilder, the buffer to append to.
+   */
+  public void render(List<String> rowData, StringBuilder out) {
+    for (Node node : plan) {
+      node.render(rowData, out);
+    }
+  }
+
+  /**
+   * Renders the template with the given row, reusing a per-thread buffer.
+   *
+   * @param rowData   List<String>, the data of a CSV row.
+   * @return String, the processed template content.
+   */
+  public String render(List<String> rowData) {
+    StringBuilder out = buffer();
+    render(rowData, out);
+    return out.toString();
+  }
+
+  /**
+   * Renders the template with the given row straight to UTF-8 bytes, reusing a per-thread direct
+   * buffer, so the document can be written to a FileChannel without a String in between.
+   *
+   * @param rowData   List<String>, the data of a CSV row.
+   * @return Utf8Buffer holding the document until the thread renders its next one.
+   */
+  Utf8Buffer renderUtf8(List<String> rowData) {
+    Utf8Buffer out = UTF8_BUFFER.get();
+    out.reset(expectedLength);
+    for (Node node : plan) {
+      node.render(rowData, out);
+    }
+    return out;
+  }
+
+  private StringBuilder buffer() {
+    StringBuilder out = BUFFER.get();
+    out.setLength(0);
+    out.ensureCapacity(expectedLength);
+    return out;
+  }
+
+  /**
+   * Gets the columns read by placeholders and conditions, in the order they appear in the
+   * template.
+   *
+   * @return List<String>, the placeholder names.
+   */
+  public List<String> getPlaceholders() {
+    return List.of(names);
+  }
+}
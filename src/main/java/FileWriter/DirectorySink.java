@@ -0,0 +1,224 @@
+package FileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes each document to its own UTF-8 file in the output directory, without going through
+ * FileWriter or the platform default charset. Every writer thread keeps a batch: one
+ * CharsetEncoder and one direct ByteBuffer that documents are encoded into back to back. The
+ * files of a batch are written together once the next document no longer fits, and on flush and
+ * close, so the buffer is reused for every document and the disk sees bursts of writes rather
+ * than one between every two renders. A document larger than the buffer is streamed to its file
+ * straight away.
+ *
+ * <p>Until flush or close returns, a written document may still be in a batch; flush writes the
+ * batches of every thread, including threads that have since finished.
+ */
+public class DirectorySink implements OutputSink {
+
+  private static final int BATCH_SIZE = 256 * 1024;
+
+  private final String outputDir;
+  private final Set<Batch> batches = ConcurrentHashMap.newKeySet();
+  private final ThreadLocal<Batch> batch = ThreadLocal.withInitial(() -> {
+    Batch batch = new Batch();
+    batches.add(batch);
+    return batch;
+  });
+
+  /**
+   * Creates a sink writing into the given directory, which must already exist.
+   *
+   * @param outputDir   String, directory where output files will be saved.
+   */
+  public DirectorySink(String outputDir) {
+    this.outputDir = outputDir;
+  }
+
+  @Override
+  public void write(String name, CharSequence content) throws IOException {
+    Batch batch = this.batch.get();
+    synchronized (batch) {
+      if (encode(content, batch)) {
+        batch.add(name);
+        return;
+      }
+      boolean wasEmpty = batch.names.isEmpty();
+      writeBatch(batch);
+      if (!wasEmpty && encode(content, batch)) {
+        batch.add(name);
+        return;
+      }
+      stream(name, content, batch);
+    }
+  }
+
+  @Override
+  public void writeUtf8(String name, ByteBuffer content) throws IOException {
+    Batch batch = this.batch.get();
+    synchronized (batch) {
+      if (content.remaining() > batch.bytes.remaining()) {
+        writeBatch(batch);
+      }
+      if (content.remaining() <= batch.bytes.remaining()) {
+        batch.bytes.put(content);
+        batch.add(name);
+        return;
+      }
+      try (FileChannel channel = open(name)) {
+        while (content.hasRemaining()) {
+          channel.write(content);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean acceptsUtf8() {
+    return true;
+  }
+
+  /**
+   * Writes the documents waiting in the batches of all threads.
+   *
+   * @throws IOException if a file cannot be written.
+   */
+  @Override
+  public void flush() throws IOException {
+    for (Batch batch : batches) {
+      synchronized (batch) {
+        writeBatch(batch);
+      }
+    }
+  }
+
+  /**
+   * Encodes a document after the others in the batch.
+   *
+   * @return boolean, false if it does not fit, in which case the batch is left as it was.
+   */
+  private static boolean encode(CharSequence content, Batch batch) {
+    ByteBuffer out = batch.bytes;
+    int start = out.position();
+    CharsetEncoder enc = batch.encoder.reset();
+    CoderResult result = enc.encode(CharBuffer.wrap(content), out, true);
+    if (!result.isOverflow()) {
+      result = enc.flush(out);
+    }
+    if (result.isOverflow()) {
+      out.position(start);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes the files of the documents in a batch and empties it. The batch is emptied even if a
+   * file fails, so its documents are not written a second time by a later flush.
+   */
+  private void writeBatch(Batch batch) throws IOException {
+    ByteBuffer out = batch.bytes;
+    try {
+      int start = 0;
+      for (int i = 0; i < batch.names.size(); i++) {
+        ByteBuffer document = out.duplicate().limit(batch.ends[i]).position(start);
+        try (FileChannel channel = open(batch.names.get(i))) {
+          while (document.hasRemaining()) {
+            channel.write(document);
+          }
+        }
+        start = batch.ends[i];
+      }
+    } finally {
+      batch.names.clear();
+      out.clear();
+    }
+  }
+
+  /**
+   * Encodes a document that does not fit in an empty batch straight to its file, using the batch
+   * buffer as scratch space.
+   */
+  private void stream(String name, CharSequence content, Batch batch) throws IOException {
+    CharsetEncoder enc = batch.encoder.reset();
+    ByteBuffer out = batch.bytes;
+    CharBuffer in = CharBuffer.wrap(content);
+    try (FileChannel channel = open(name)) {
+      CoderResult result;
+      do {
+        result = enc.encode(in, out, true);
+        if (result.isOverflow()) {
+          drain(channel, out);
+        }
+      } while (result.isOverflow());
+      while (enc.flush(out).isOverflow()) {
+        drain(channel, out);
+      }
+      drain(channel, out);
+    } finally {
+      out.clear();
+    }
+  }
+
+  private FileChannel open(String name) throws IOException {
+    return FileChannel.open(Paths.get(outputDir + File.separator + name),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Writes everything in the buffer to the channel and clears the buffer.
+   */
+  private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+    out.flip();
+    while (out.hasRemaining()) {
+      channel.write(out);
+    }
+    out.clear();
+  }
+
+  /**
+   * Writes the documents still waiting in the batches.
+   *
+   * @throws IOException if a file cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+  /**
+   * The documents one thread has encoded but not yet written: their bytes back to back in one
+   * buffer, and the name and end offset of each.
+   */
+  private static final class Batch {
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BATCH_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final List<String> names = new ArrayList<>();
+    private int[] ends = new int[64];
+
+    private void add(String name) {
+      if (names.size() == ends.length) {
+        ends = Arrays.copyOf(ends, ends.length * 2);
+      }
+      ends[names.size()] = bytes.position();
+      names.add(name);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package FileWriter;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for one generated document handed to its destination, covering
+ * the time taken to encode and write it.
+ */
+@Name("FileWriter.FileWritten")
+@Label("File Written")
+@Category("Document Generation")
+@Description("One generated document written")
+public class FileWrittenEvent extends jdk.jfr.Event {
+
+  @Label("Row Index")
+  @Description("Number of the CSV row, -1 if not known")
+  int rowIndex;
+
+  @Label("File")
+  String fileName;
+
+  @Label("Size")
+  @DataAmount
+  long bytes;
+
+  /**
+   * Ends the event and commits it if it is being recorded. The size is only computed then.
+   *
+   * @param rowIndex int, the number of the CSV row, -1 if not known.
+   * @param fileName String, the name or path of the file.
+   * @param content  CharSequence, the document written.
+   */
+  void finish(int rowIndex, String fileName, CharSequence content) {
+    end();
+    if (shouldCommit()) {
+      this.rowIndex = rowIndex;
+      this.fileName = fileName;
+      this.bytes = TemplateProcessor.utf8Length(content);
+      commit();
+    }
+  }
+
+  /**
+   * Ends the event and commits it if it is being recorded.
+   *
+   * @param rowIndex int, the number of the CSV row, -1 if not known.
+   * @param fileName String, the name or path of the file.
+   * @param bytes    long, the size of the document in UTF-8.
+   */
+  void finish(int rowIndex, String fileName, long bytes) {
+    end();
+    if (shouldCommit()) {
+      this.rowIndex = rowIndex;
+      this.fileName = fileName;
+      this.bytes = bytes;
+      commit();
+    }
+  }
+}
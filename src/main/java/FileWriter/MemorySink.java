@@ -0,0 +1,33 @@
+package FileWriter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps rendered documents in memory, keyed by name. Intended for tests and for callers that want
+ * to post-process documents themselves.
+ */
+public class MemorySink implements OutputSink {
+
+  private final Map<String, String> documents = Collections.synchronizedMap(new LinkedHashMap<>());
+
+  @Override
+  public void write(String name, CharSequence content) {
+    documents.put(name, content.toString());
+  }
+
+  /**
+   * Gets the documents written so far, in the order they were written.
+   *
+   * @return Map<String, String>, document content keyed by name.
+   */
+  public Map<String, String> getDocuments() {
+    return documents;
+  }
+
+  @Override
+  public void close() {
+    // Nothing to release.
+  }
+}
@@ -0,0 +1,62 @@
+package FileWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Destination for rendered documents. TemplateProcessor hands every document to a sink together
+ * with its name ("email 1.txt", "letter 2.txt", ...); the sink decides where the bytes go. Sinks
+ * must accept writes from several worker threads at once.
+ */
+public interface OutputSink extends AutoCloseable {
+
+  /**
+   * Writes one document.
+   *
+   * @param name   String, the name of the document, as generated by generateOutputFileName.
+   * @param content   CharSequence, the rendered content of the document.
+   * @throws IOException   if an I/O error occurs.
+   */
+  void write(String name, CharSequence content) throws IOException;
+
+  /**
+   * Writes one document that has already been encoded as UTF-8. Sinks that cannot take the bytes
+   * as they are decode them and call write(String, CharSequence).
+   *
+   * @param name   String, the name of the document, as generated by generateOutputFileName.
+   * @param content   ByteBuffer, the UTF-8 bytes of the document from its position to its limit;
+   *                  the caller may reuse the buffer once writeUtf8 returns.
+   * @throws IOException   if an I/O error occurs.
+   */
+  default void writeUtf8(String name, ByteBuffer content) throws IOException {
+    write(name, StandardCharsets.UTF_8.decode(content));
+  }
+
+  /**
+   * Tells whether writeUtf8 writes the bytes without decoding them, so documents are best
+   * rendered straight to UTF-8 for this sink.
+   *
+   * @return boolean, true if the sink takes UTF-8 bytes as they are.
+   */
+  default boolean acceptsUtf8() {
+    return false;
+  }
+
+  /**
+   * Waits until every document handed to the sink so far has been written. Sinks that write
+   * before write returns have nothing to do.
+   *
+   * @throws IOException   if an I/O error occurs.
+   */
+  default void flush() throws IOException {
+  }
+
+  /**
+   * Flushes and releases the sink.
+   *
+   * @throws IOException   if an I/O error occurs.
+   */
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,17 @@
+package FileWriter;
+
+import java.io.IOException;
+
+/**
+ * A unit of output work, such as rendering and writing one CSV row, run by a WorkerPool.
+ */
+@FunctionalInterface
+public interface OutputTask {
+
+  /**
+   * Runs the task.
+   *
+   * @throws IOException   if an I/O error occurs.
+   */
+  void run() throws IOException;
+}
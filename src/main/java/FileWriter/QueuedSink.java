@@ -0,0 +1,93 @@
+package FileWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An OutputSink that hands documents to writer threads of their own, so the threads rendering
+ * them go on with the next rows instead of waiting on the disk. At most the given number of
+ * documents wait to be written; once that many are queued, write blocks until a writer catches
+ * up, so a slow disk slows rendering down instead of filling the heap with rendered documents.
+ * The first failure of a writer is rethrown by the next call to write, flush or close.
+ *
+ * <p>Documents rendered as UTF-8 are copied into direct buffers that are handed back to a pool
+ * once written, so a busy queue allocates no buffer per document and FileChannel writes them
+ * without copying them again. The pool holds about as many buffers as documents can be queued.
+ */
+public class QueuedSink implements OutputSink {
+
+  private static final int MIN_BUFFER_SIZE = 16 * 1024;
+
+  private final OutputSink sink;
+  private final WorkerPool writers;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Creates a queue in front of another sink.
+   *
+   * @param sink     OutputSink the writer threads write to; must accept writes from all of them.
+   * @param threads  int, the number of writer threads, at least 1.
+   * @param capacity int, the most documents waiting to be written, at least 1.
+   */
+  public QueuedSink(OutputSink sink, int threads, int capacity) {
+    this.sink = sink;
+    this.writers = new WorkerPool(threads, capacity, "output-writer");
+  }
+
+  @Override
+  public void write(String name, CharSequence content) throws IOException {
+    // The caller may reuse a mutable CharSequence once write returns.
+    String text = content.toString();
+    writers.submit(() -> sink.write(name, text));
+  }
+
+  @Override
+  public void writeUtf8(String name, ByteBuffer content) throws IOException {
+    // The caller may reuse its buffer once writeUtf8 returns.
+    ByteBuffer bytes = buffers.poll();
+    if (bytes == null || bytes.capacity() < content.remaining()) {
+      bytes = ByteBuffer.allocateDirect(Math.max(content.remaining(), MIN_BUFFER_SIZE));
+    }
+    bytes.clear();
+    bytes.put(content).flip();
+    ByteBuffer document = bytes;
+    writers.submit(() -> {
+      try {
+        sink.writeUtf8(name, document);
+      } finally {
+        buffers.offer(document);
+      }
+    });
+  }
+
+  @Override
+  public boolean acceptsUtf8() {
+    return sink.acceptsUtf8();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writers.await();
+    sink.flush();
+  }
+
+  /**
+   * Writes the documents still queued, stops the writer threads and closes the sink.
+   *
+   * @throws IOException if a document could not be written or the sink cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      writers.await();
+    } finally {
+      try {
+        sink.close();
+      } finally {
+        writers.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package FileWriter;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for one run: CSV bytes read, rows parsed, time spent rendering
+ * each document, time spent writing each document, files written and the heap high-water mark.
+ * A run without metrics simply has no RunMetrics, so the stages only pay for a null check.
+ * All recording methods are safe to call from several threads.
+ */
+public class RunMetrics {
+
+  private final long startNanos = System.nanoTime();
+  private volatile long endNanos;
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder files = new LongAdder();
+  private final LongAdder outputChars = new LongAdder();
+  private final AtomicLong csvBytes = new AtomicLong();
+  private final Histogram render = new Histogram();
+  private final Histogram write = new Histogram();
+
+  /**
+   * A histogram of durations in power-of-two buckets of nanoseconds, cheap enough to update for
+   * every document.
+   */
+  static final class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+      buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos | 1));
+      count.increment();
+      total.add(nanos);
+      max.accumulateAndGet(nanos, Math::max);
+    }
+
+    long count() {
+      return count.sum();
+    }
+
+    double meanMicros() {
+      long n = count.sum();
+      return n == 0 ? 0 : total.sum() / 1000.0 / n;
+    }
+
+    double maxMicros() {
+      return max.get() / 1000.0;
+    }
+
+    /** The upper bound, in microseconds, of the bucket holding the given fraction of samples. */
+    double percentileMicros(double fraction) {
+      long target = (long) Math.ceil(count.sum() * fraction);
+      long seen = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        seen += buckets.get(i);
+        if (seen >= target && seen > 0) {
+          return Math.min((2L << i) / 1000.0, maxMicros());
+        }
+      }
+      return 0;
+    }
+
+    String toJson() {
+      return String.format(Locale.ROOT,
+          "{\"count\":%d,\"meanMicros\":%.3f,\"p50Micros\":%.3f,\"p99Micros\":%.3f,\"maxMicros\":%.3f}",
+          count(), meanMicros(), percentileMicros(0.5), percentileMicros(0.99), maxMicros());
+    }
+  }
+
+  /**
+   * Starts measuring a run. The peak usage of the heap pools is reset, so the heap high-water
+   * mark is that of this run; runs measured at the same time in one JVM share it.
+   */
+  public RunMetrics() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /** Counts one parsed data row. */
+  public void rowParsed() {
+    rows.increment();
+  }
+
+  /**
+   * Records how far into the CSV file the run has read.
+   *
+   * @param bytes long, the number of bytes of the CSV file read so far.
+   */
+  public void csvRead(long bytes) {
+    csvBytes.accumulateAndGet(bytes, Math::max);
+  }
+
+  /**
+   * Records the time taken to render one document.
+   *
+   * @param nanos long, the duration in nanoseconds.
+   */
+  public void rendered(long nanos) {
+    render.record(nanos);
+  }
+
+  /**
+   * Records one document written and the time taken to write it.
+   *
+   * @param nanos long, the duration in nanoseconds.
+   * @param chars int, the length of the document.
+   */
+  public void written(long nanos, int chars) {
+    write.record(nanos);
+    files.increment();
+    outputChars.add(chars);
+  }
+
+  /**
+   * Gets the number of data rows parsed.
+   *
+   * @return long, the number of rows.
+   */
+  public long getRows() {
+    return rows.sum();
+  }
+
+  /**
+   * Gets the number of files written.
+   *
+   * @return long, the number of files.
+   */
+  public long getFiles() {
+    return files.sum();
+  }
+
+  /**
+   * Gets the highest heap usage seen during the run, summed over the heap memory pools.
+   *
+   * @return long, the heap high-water mark in bytes.
+   */
+  public long getHeapHighWater() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /** Marks the end of the run; reports made afterwards all use the same elapsed time. */
+  public void finish() {
+    endNanos = System.nanoTime();
+  }
+
+  private double elapsedSeconds() {
+    long end = endNanos == 0 ? System.nanoTime() : endNanos;
+    return Math.max(end - startNanos, 1) / 1e9;
+  }
+
+  /**
+   * Formats a one-line progress report.
+   *
+   * @return String with the rows, files and throughput so far.
+   */
+  public String progressLine() {
+    double seconds = elapsedSeconds();
+    return String.format(Locale.ROOT, "%.1fs: %d rows, %d files, %.1f MB/s CSV, %.0f files/s",
+        seconds, getRows(), getFiles(), csvBytes.get() / 1e6 / seconds, getFiles() / seconds);
+  }
+
+  /**
+   * Formats a human-readable summary of the run.
+   *
+   * @return String of several lines describing every stage.
+   */
+  public String summary() {
+    double seconds = elapsedSeconds();
+    String nl = System.lineSeparator();
+    return String.format(Locale.ROOT, "Run metrics (%.3f s):", seconds) + nl
+        + String.format(Locale.ROOT, "  CSV read:     %d bytes, %.1f MB/s", csvBytes.get(),
+            csvBytes.get() / 1e6 / seconds) + nl
+        + String.format(Locale.ROOT, "  Rows parsed:  %d, %.0f rows/s", getRows(),
+            getRows() / seconds) + nl
+        + stageLine("Render", render) + nl
+        + stageLine("Write", write) + nl
+        + String.format(Locale.ROOT, "  Files:        %d, %.0f files/s, %d chars", getFiles(),
+            getFiles() / seconds, outputChars.sum()) + nl
+        + String.format(Locale.ROOT, "  Heap peak:    %.1f MB", getHeapHighWater() / 1e6);
+  }
+
+  private static String stageLine(String name, Histogram histogram) {
+    return String.format(Locale.ROOT,
+        "  %-13s %d, mean %.1f us, p50 <= %.1f us, p99 <= %.1f us, max %.1f us", name + ":",
+        histogram.count(), histogram.meanMicros(), histogram.percentileMicros(0.5),
+        histogram.percentileMicros(0.99), histogram.maxMicros());
+  }
+
+  /**
+   * Formats the metrics as a JSON object for other tools to read.
+   *
+   * @return String containing one JSON object.
+   */
+  public String toJson() {
+    double seconds = elapsedSeconds();
+    return String.format(Locale.ROOT,
+        "{\"elapsedSeconds\":%.3f,\"csvBytes\":%d,\"csvBytesPerSecond\":%.1f,\"rows\":%d,"
+            + "\"files\":%d,\"filesPerSecond\":%.1f,\"outputChars\":%d,\"heapHighWaterBytes\":%d,"
+            + "\"render\":%s,\"write\":%s}",
+        seconds, csvBytes.get(), csvBytes.get() / seconds, getRows(), getFiles(),
+        getFiles() / seconds, outputChars.sum(), getHeapHighWater(), render.toJson(),
+        write.toJson());
+  }
+
+  /**
+   * Prints a progress line at a fixed interval until the returned scheduler is shut down.
+   *
+   * @param seconds int, the interval between two lines.
+   * @param out     PrintStream to print the lines to.
+   * @return ScheduledExecutorService running the reports on a daemon thread.
+   */
+  public ScheduledExecutorService startProgress(int seconds, PrintStream out) {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "progress");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleAtFixedRate(() -> out.println(progressLine()), seconds, seconds,
+        TimeUnit.SECONDS);
+    return scheduler;
+  }
+}
@@ -0,0 +1,49 @@
+package FileWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes every document to one output stream, such as standard output or a pipe into a mail-merge
+ * process, so nothing touches the disk. Each document is preceded by a header line
+ * "==> name <==" and followed by a line break. Writes are synchronized so documents from worker
+ * threads never interleave.
+ */
+public class StreamSink implements OutputSink {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final BufferedWriter writer;
+  private final boolean closeStream;
+
+  /**
+   * Creates a sink writing UTF-8 text to the given stream.
+   *
+   * @param out   OutputStream, the stream to write to.
+   * @param closeStream   boolean, whether closing the sink also closes the stream.
+   */
+  public StreamSink(OutputStream out, boolean closeStream) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    this.closeStream = closeStream;
+  }
+
+  @Override
+  public synchronized void write(String name, CharSequence content) throws IOException {
+    writer.write("==> " + name + " <==");
+    writer.newLine();
+    writer.append(content);
+    writer.newLine();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closeStream) {
+      writer.close();
+    } else {
+      writer.flush();
+    }
+  }
+}
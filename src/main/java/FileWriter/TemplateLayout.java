@@ -0,0 +1,263 @@
+package FileWriter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The result of scanning a template for its tags, before it is compiled against a CSV header: a
+ * sequence of literal text, value placeholders with their column and filters, and the tags that
+ * open, split and close conditional sections. A layout depends on the template text only, so it
+ * can be saved in a compact binary form and read back by a later run instead of scanning the
+ * template again. Layouts are immutable.
+ */
+public final class TemplateLayout {
+
+  static final byte LITERAL = 0;
+  static final byte FIELD = 1;
+  static final byte IF = 2;
+  static final byte ELSE = 3;
+  static final byte END_IF = 4;
+
+  private static final Pattern CONDITION =
+      Pattern.compile("#if\\s+(.+?)(?:\\s*(==|!=)\\s*(.*?))?\\s*");
+  private static final int MAGIC = 0x54504c31;
+
+  // LITERAL: {text}, FIELD: {tag, column, filters...}, IF: {tag, column, operator, operand},
+  // ELSE and END_IF: {tag}; operator and operand are null for a bare column
+  private final byte[] kinds;
+  private final String[][] values;
+
+  private TemplateLayout(byte[] kinds, String[][] values) {
+    this.kinds = kinds;
+    this.values = values;
+  }
+
+  /**
+   * Scans a template for its tags.
+   *
+   * @param template String, the template content.
+   * @return TemplateLayout of the template.
+   * @throws IllegalArgumentException if conditional sections are not opened and closed properly.
+   */
+  public static TemplateLayout parse(String template) {
+    List<Byte> kinds = new ArrayList<>();
+    List<String[]> values = new ArrayList<>();
+    // For every open section, the tag that opened it and whether [[#else]] was seen
+    List<String> open = new ArrayList<>();
+    List<Boolean> split = new ArrayList<>();
+    Matcher matcher = CompiledTemplate.PLACEHOLDER.matcher(template);
+    int last = 0;
+    while (matcher.find()) {
+      if (matcher.start() > last) {
+        kinds.add(LITERAL);
+        values.add(new String[]{template.substring(last, matcher.start())});
+      }
+      last = matcher.end();
+      String tag = matcher.group();
+      String content = matcher.group(1);
+      Matcher condition = CONDITION.matcher(content);
+      if (condition.matches()) {
+        kinds.add(IF);
+        values.add(new String[]{tag, condition.group(1), condition.group(2), operand(condition.group(3))});
+        open.add(tag);
+        split.add(false);
+      } else if (content.trim().equals("#else")) {
+        if (open.isEmpty() || split.get(split.size() - 1)) {
+          throw new IllegalArgumentException("Unexpected " + tag + " in the template.");
+        }
+        split.set(split.size() - 1, true);
+        kinds.add(ELSE);
+        values.add(new String[]{tag});
+      } else if (content.trim().equals("/if")) {
+        if (open.isEmpty()) {
+          throw new IllegalArgumentException("Unexpected " + tag + " in the template.");
+        }
+        open.remove(open.size() - 1);
+        split.remove(split.size() - 1);
+        kinds.add(END_IF);
+        values.add(new String[]{tag});
+      } else {
+        kinds.add(FIELD);
+        values.add(field(tag, content));
+      }
+    }
+    if (!open.isEmpty()) {
+      throw new IllegalArgumentException(open.get(open.size() - 1) + " is never closed with [[/if]].");
+    }
+    if (last < template.length()) {
+      kinds.add(LITERAL);
+      values.add(new String[]{template.substring(last)});
+    }
+
+    byte[] kindArray = new byte[kinds.size()];
+    for (int i = 0; i < kindArray.length; i++) {
+      kindArray[i] = kinds.get(i);
+    }
+    return new TemplateLayout(kindArray, values.toArray(new String[0][]));
+  }
+
+  private static String operand(String operand) {
+    if (operand != null && operand.length() >= 2 && operand.startsWith("\"") && operand.endsWith("\"")) {
+      return operand.substring(1, operand.length() - 1);
+    }
+    return operand;
+  }
+
+  /**
+   * Splits a value placeholder into its column, read up to the first filter, and its filters.
+   */
+  private static String[] field(String tag, String content) {
+    int bar = content.indexOf('|');
+    if (bar < 0) {
+      return new String[]{tag, content};
+    }
+    String[] filters = content.substring(bar + 1).split("\\|");
+    String[] result = new String[filters.length + 2];
+    result[0] = tag;
+    result[1] = content.substring(0, bar).trim();
+    System.arraycopy(filters, 0, result, 2, filters.length);
+    return result;
+  }
+
+  /**
+   * Gets the number of segments of the layout.
+   *
+   * @return int, the number of literals and tags.
+   */
+  int size() {
+    return kinds.length;
+  }
+
+  /**
+   * Gets the kind of a segment: LITERAL, FIELD, IF, ELSE or END_IF.
+   *
+   * @param segment int, the index of the segment.
+   * @return byte, the kind of the segment.
+   */
+  byte kind(int segment) {
+    return kinds[segment];
+  }
+
+  /**
+   * Gets the values of a segment, laid out as described for its kind.
+   *
+   * @param segment int, the index of the segment.
+   * @return String[] of the values; must not be modified.
+   */
+  String[] values(int segment) {
+    return values[segment];
+  }
+
+  /**
+   * Gets the columns read by placeholders and conditions, in the order they first appear.
+   *
+   * @return Set<String>, the column names.
+   */
+  public Set<String> getColumns() {
+    Set<String> columns = new LinkedHashSet<>();
+    for (int i = 0; i < kinds.length; i++) {
+      if (kinds[i] == FIELD || kinds[i] == IF) {
+        columns.add(values[i][1]);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Writes the layout in its binary form: a magic number, the number of segments, then for each
+   * segment its kind, the number of its values and every value as a length-prefixed UTF-8 string,
+   * -1 standing for null.
+   *
+   * @param out DataOutput to write to.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(kinds.length);
+    for (int i = 0; i < kinds.length; i++) {
+      out.writeByte(kinds[i]);
+      out.writeShort(values[i].length);
+      for (String value : values[i]) {
+        if (value == null) {
+          out.writeInt(-1);
+        } else {
+          byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a layout written by writeTo.
+   *
+   * @param in DataInput to read from.
+   * @return TemplateLayout that was written.
+   * @throws IOException if an I/O error occurs or the data is not a layout.
+   */
+  public static TemplateLayout readFrom(DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a template layout");
+    }
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Corrupt template layout");
+    }
+    byte[] kinds = new byte[count];
+    String[][] values = new String[count][];
+    int depth = 0;
+    for (int i = 0; i < count; i++) {
+      kinds[i] = in.readByte();
+      int arity = in.readUnsignedShort();
+      if (kinds[i] < LITERAL || kinds[i] > END_IF || arity < minimumValues(kinds[i])) {
+        throw new IOException("Corrupt template layout");
+      }
+      depth += kinds[i] == IF ? 1 : kinds[i] == END_IF ? -1 : 0;
+      if (depth < 0 || kinds[i] == ELSE && depth == 0) {
+        throw new IOException("Corrupt template layout");
+      }
+      values[i] = new String[arity];
+      for (int v = 0; v < values[i].length; v++) {
+        int length = in.readInt();
+        if (length < -1) {
+          throw new IOException("Corrupt template layout");
+        }
+        if (length >= 0) {
+          byte[] bytes = new byte[length];
+          in.readFully(bytes);
+          values[i][v] = new String(bytes, StandardCharsets.UTF_8);
+        }
+      }
+    }
+    if (depth != 0) {
+      throw new IOException("Corrupt template layout");
+    }
+    return new TemplateLayout(kinds, values);
+  }
+
+  private static int minimumValues(byte kind) {
+    return kind == FIELD ? 2 : kind == IF ? 4 : 1;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof TemplateLayout
+        && Arrays.equals(kinds, ((TemplateLayout) other).kinds)
+        && Arrays.deepEquals(values, ((TemplateLayout) other).values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(kinds) + Arrays.deepHashCode(values);
+  }
+}
@@ -0,0 +1,127 @@
+package FileWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the layouts of templates in a folder across runs, so a short job using the same
+ * templates as an earlier one reads each layout back instead of scanning the template again.
+ * Every layout is stored in its own file named after the SHA-256 hash of the template text, so a
+ * changed template simply gets a new entry and entries never need to be invalidated. An entry
+ * that cannot be read is replaced. Entries are written to a temporary file and moved into place,
+ * so runs sharing the folder never see half-written entries.
+ */
+public class TemplateLayoutCache {
+
+  /** The extension of the entries in the cache folder. */
+  public static final String EXTENSION = ".layout";
+
+  private final Path folder;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private PrintStream console = System.out;
+
+  /**
+   * Opens the cache folder, creating it if needed.
+   *
+   * @param folder String, the folder the layouts are kept in.
+   * @throws IOException if the folder cannot be created.
+   */
+  public TemplateLayoutCache(String folder) throws IOException {
+    this.folder = Files.createDirectories(Path.of(folder));
+  }
+
+  /**
+   * Sets where notices about replaced entries are printed, so they stay out of documents written
+   * to standard output.
+   *
+   * @param console PrintStream the notices are printed to.
+   */
+  public void setConsole(PrintStream console) {
+    this.console = console;
+  }
+
+  /**
+   * Gets the layout of a template from the cache, scanning the template and storing its layout
+   * if the cache has none.
+   *
+   * @param template String, the template content.
+   * @return TemplateLayout of the template.
+   * @throws IOException if a new entry cannot be written.
+   */
+  public TemplateLayout get(String template) throws IOException {
+    Path entry = folder.resolve(hash(template) + EXTENSION);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      TemplateLayout layout = TemplateLayout.readFrom(in);
+      hits.incrementAndGet();
+      return layout;
+    } catch (NoSuchFileException e) {
+      // Not cached yet.
+    } catch (IOException e) {
+      console.println("Replacing unreadable template cache entry " + entry.getFileName() + ": " + e.getMessage());
+    }
+
+    misses.incrementAndGet();
+    TemplateLayout layout = TemplateLayout.parse(template);
+    Path temp = Files.createTempFile(folder, "layout", ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        layout.writeTo(out);
+      }
+      Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return layout;
+  }
+
+  /**
+   * Hashes the text of a template for use as the name of its entry.
+   *
+   * @param template String, the template content.
+   * @return String, the SHA-256 hash of the UTF-8 text in hexadecimal.
+   */
+  static String hash(String template) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(template.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Gets the number of layouts read from the cache.
+   *
+   * @return int, the number of cache hits.
+   */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of templates that had to be scanned.
+   *
+   * @return int, the number of cache misses.
+   */
+  public int getMisses() {
+    return misses.get();
+  }
+}
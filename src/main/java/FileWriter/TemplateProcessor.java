@@ -4,11 +4,15 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A class to process templates and generate output files based on CSV data.
@@ -28,17 +32,138 @@ public class TemplateProcessor {
   public static void outputFiles(Map<Integer, List<String>> csvContent,
       String templateContent,
       String outputDir, Map<String, Integer> headerMap, String type) throws IOException {
+    outputFiles(csvContent, templateContent, outputDir, headerMap, type, 1);
+  }
+
+  /**
+   * Method to generate specific files based on provided CSV content and template, rendering and
+   * writing the rows on the given number of worker threads. File names do not depend on the order
+   * in which the workers finish.
+   *
+   * @param csvContent   Map<Integer, List<String>>, content of CSV file represented as map of rows.
+   * @param templateContent   String, content of the template to be processed.
+   * @param outputDir   String, directory where output files will be saved.
+   * @param headerMap   Map<String, Integer>, mapping of CSV header values to their column indices.
+   * @param type   String, the type of file to be generated.
+   * @param threads   int, the number of worker threads; 1 renders on the calling thread.
+   * @throws IOException   if an I/O error occurs in any worker.
+   */
+  public static void outputFiles(Map<Integer, List<String>> csvContent,
+      String templateContent,
+      String outputDir, Map<String, Integer> headerMap, String type, int threads) throws IOException {
 
 
     createOutputDirectory(outputDir);
 
+    try (OutputSink sink = new DirectorySink(outputDir)) {
+      outputFiles(csvContent, templateContent, sink, headerMap, type, threads);
+    }
+  }
+
+  /**
+   * Method to generate specific documents based on provided CSV content and template, and hand
+   * them to the given sink. Rows are looked up by number, which for the map Reader.readCSV
+   * returns is an index into its row table rather than a hash lookup.
+   *
+   * @param csvContent   Map<Integer, List<String>>, content of CSV file represented as map of rows.
+   * @param templateContent   String, content of the template to be processed.
+   * @param sink   OutputSink, where the rendered documents are written.
+   * @param headerMap   Map<String, Integer>, mapping of CSV header values to their column indices.
+   * @param type   String, the type of file to be generated.
+   * @param threads   int, the number of worker threads; 1 renders on the calling thread.
+   * @throws IOException   if an I/O error occurs in any worker.
+   */
+  public static void outputFiles(Map<Integer, List<String>> csvContent,
+      String templateContent,
+      OutputSink sink, Map<String, Integer> headerMap, String type, int threads) throws IOException {
+
     int numRows = csvContent.size();
-    for (int i = 1; i < numRows; i++) {
-      List<String> rowData = csvContent.get(i);
-      String processedContent = processTemplate(templateContent, rowData, headerMap);
-      String outputFile = generateOutputFilePath(outputDir, type, i);
-      writeOutputFile(outputFile, processedContent);
+    if (numRows <= 1) {
+      return;
+    }
+    CompiledTemplate template = CompiledTemplate.compile(templateContent, headerMap);
+    OutputSink timed = new TimedSink(sink, null);
+    if (threads <= 1) {
+      for (int i = 1; i < numRows; i++) {
+        outputRow(template, csvContent.get(i), timed, type, i);
+      }
+      return;
+    }
+    try (WorkerPool pool = new WorkerPool(threads)) {
+      for (int i = 1; i < numRows; i++) {
+        List<String> rowData = csvContent.get(i);
+        int index = i;
+        pool.submit(() -> outputRow(template, rowData, timed, type, index));
+      }
+      pool.await();
+    }
+  }
+
+  /**
+   * Renders a single CSV row with the template and writes it to the sink. This is the unit
+   * of work shared by the map-based outputFiles and the streaming pipeline in Reader.
+   *
+   * @param template   CompiledTemplate, the template compiled against the CSV header.
+   * @param rowData   List<String>, the data of a CSV row.
+   * @param sink   OutputSink, where the rendered document is written.
+   * @param type   String, the type of file to be generated.
+   * @param index   int, index of the row, used to name the output file.
+   * @throws IOException   if an I/O error occurs.
+   */
+  public static void outputRow(CompiledTemplate template, List<String> rowData, OutputSink sink,
+      String type, int index) throws IOException {
+    outputRow(template, rowData, sink, type, index, null);
+  }
+
+  /**
+   * Renders one row with a compiled template and writes it to the sink like
+   * outputRow(CompiledTemplate, List, OutputSink, String, int), timing the rendering and
+   * reporting it as a flight recorder event. The write is timed by a TimedSink where it actually
+   * happens, which may be a writer thread. For a sink that accepts UTF-8, the document is
+   * rendered straight to bytes and written without a String.
+   *
+   * @param template    CompiledTemplate, the compiled template.
+   * @param rowData     List<String>, the parsed values of the row.
+   * @param sink        OutputSink, where the rendered document is written.
+   * @param type        String, the type of the output file.
+   * @param index       int, the index for generating the output file name.
+   * @param metrics     RunMetrics, where the rendering time is recorded, or null.
+   * @throws IOException if an I/O error occurs while writing.
+   */
+  public static void outputRow(CompiledTemplate template, List<String> rowData, OutputSink sink,
+      String type, int index, RunMetrics metrics) throws IOException {
+    if (sink.acceptsUtf8()) {
+      outputUtf8(template, rowData, sink, type, index, metrics);
+      return;
+    }
+    String name = generateOutputFileName(type, index);
+    long start = metrics == null ? 0 : System.nanoTime();
+    TemplateRenderedEvent renderEvent = new TemplateRenderedEvent();
+    renderEvent.begin();
+    String content = template.render(rowData);
+    renderEvent.finish(index, type, content);
+    if (metrics != null) {
+      metrics.rendered(System.nanoTime() - start);
+    }
+    sink.write(name, content);
+  }
+
+  /**
+   * Renders one row straight to UTF-8 bytes and hands them to the sink, timing and reporting
+   * the rendering like outputRow.
+   */
+  private static void outputUtf8(CompiledTemplate template, List<String> rowData, OutputSink sink,
+      String type, int index, RunMetrics metrics) throws IOException {
+    String name = generateOutputFileName(type, index);
+    long start = metrics == null ? 0 : System.nanoTime();
+    TemplateRenderedEvent renderEvent = new TemplateRenderedEvent();
+    renderEvent.begin();
+    ByteBuffer content = template.renderUtf8(rowData).content();
+    renderEvent.finish(index, type, content.remaining());
+    if (metrics != null) {
+      metrics.rendered(System.nanoTime() - start);
     }
+    sink.writeUtf8(name, content);
   }
 
   /**
@@ -47,7 +172,7 @@ public class TemplateProcessor {
    * @param outputDir   String, directory path to be created.
    * @throws IOException   if directory creation fails.
    */
-  static void createOutputDirectory(String outputDir) throws IOException {
+  public static void createOutputDirectory(String outputDir) throws IOException {
     File directory = new File(outputDir);
     if (!directory.exists()) {
       if (!directory.mkdirs()) {
@@ -65,7 +190,18 @@ public class TemplateProcessor {
    * @return String, the generated output file path.
    */
   static String generateOutputFilePath(String outputDir, String type, int index) {
-    return outputDir + File.separator + type + " " + index + ".txt";
+    return outputDir + File.separator + generateOutputFileName(type, index);
+  }
+
+  /**
+   * Generates the output file name based on type and index.
+   *
+   * @param type   String, the type of file.
+   * @param index   int, index of the file.
+   * @return String, the generated output file name.
+   */
+  public static String generateOutputFileName(String type, int index) {
+    return type + " " + index + ".txt";
   }
 
 
@@ -80,17 +216,11 @@ public class TemplateProcessor {
   static String processTemplate(String template, List<String> rowData,
       Map<String, Integer> headerMap) {
 
-    List<String> placeholders = findAll(template);
-    String copyTemplate = template;
-    for (String placeholder : placeholders) {
-      Integer index = headerMap.get(placeholder);
-      if (index != null && index < rowData.size()) {
-        String replaceVal = rowData.get(index);
-        copyTemplate = copyTemplate.replace("[[" + placeholder + "]]", replaceVal);
-      }
-    }
-
-    return copyTemplate;
+    TemplateRenderedEvent event = new TemplateRenderedEvent();
+    event.begin();
+    String content = CompiledTemplate.compile(template, headerMap).render(rowData);
+    event.finish(-1, null, content);
+    return content;
   }
 
   /**
@@ -101,8 +231,7 @@ public class TemplateProcessor {
    */
   public static List<String> findAll(String input){
     List<String> matches = new ArrayList<>();
-    Pattern pattern = Pattern.compile("\\[\\[([^\\[\\]]*?)\\]\\]");
-    Matcher matcher = pattern.matcher(input);
+    Matcher matcher = CompiledTemplate.PLACEHOLDER.matcher(input);
 
     while(matcher.find()){
       matches.add(matcher.group(1));
@@ -114,15 +243,58 @@ public class TemplateProcessor {
   }
 
   /**
-   * Writes the content to the specified file path.
+   * Collects the columns used by any of the given templates, in placeholders or conditions, i.e.
+   * the CSV columns that rendering them can read.
+   *
+   * @param templates   Collection<String>, the template contents.
+   * @return Set<String>, the referenced column names.
+   */
+  public static Set<String> referencedColumns(Collection<String> templates) {
+    Set<String> columns = new HashSet<>();
+    for (String template : templates) {
+      columns.addAll(CompiledTemplate.columns(template));
+    }
+    return columns;
+  }
+
+  /**
+   * Writes the content to the specified file path as UTF-8.
    *
    * @param filePath   String, the path of the file to write.
    * @param content   String, the content to write to the file.
    * @throws IOException   if an I/O error occurs.
    */
   static void writeOutputFile(String filePath, String content) throws IOException {
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+    FileWrittenEvent event = new FileWrittenEvent();
+    event.begin();
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, StandardCharsets.UTF_8))) {
       writer.write(content);
     }
+    event.finish(-1, filePath, content);
+  }
+
+  /**
+   * Counts the bytes that the UTF-8 encoding of the text takes, without encoding it.
+   *
+   * @param text   CharSequence, the text to measure.
+   * @return long, the number of bytes.
+   */
+  public static long utf8Length(CharSequence text) {
+    long bytes = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
   }
 }
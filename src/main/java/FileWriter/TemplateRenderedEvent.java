@@ -0,0 +1,63 @@
+package FileWriter;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for one document rendered from a template and a CSV row.
+ */
+@Name("FileWriter.TemplateRendered")
+@Label("Template Rendered")
+@Category("Document Generation")
+@Description("One document rendered from a template and a CSV row")
+public class TemplateRenderedEvent extends jdk.jfr.Event {
+
+  @Label("Row Index")
+  @Description("Number of the CSV row, -1 if not known")
+  int rowIndex;
+
+  @Label("Type")
+  @Description("Type of file the template generates")
+  String type;
+
+  @Label("Output Size")
+  @DataAmount
+  long outputBytes;
+
+  /**
+   * Ends the event and commits it if it is being recorded. The size is only computed then.
+   *
+   * @param rowIndex int, the number of the CSV row, -1 if not known.
+   * @param type     String, the type of file, or null if not known.
+   * @param output   CharSequence, the rendered document.
+   */
+  void finish(int rowIndex, String type, CharSequence output) {
+    end();
+    if (shouldCommit()) {
+      this.rowIndex = rowIndex;
+      this.type = type;
+      this.outputBytes = TemplateProcessor.utf8Length(output);
+      commit();
+    }
+  }
+
+  /**
+   * Ends the event and commits it if it is being recorded.
+   *
+   * @param rowIndex    int, the number of the CSV row, -1 if not known.
+   * @param type        String, the type of file, or null if not known.
+   * @param outputBytes long, the size of the rendered document in UTF-8.
+   */
+  void finish(int rowIndex, String type, long outputBytes) {
+    end();
+    if (shouldCommit()) {
+      this.rowIndex = rowIndex;
+      this.type = type;
+      this.outputBytes = outputBytes;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package FileWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An OutputSink that times every document written to another sink, recording a FileWrittenEvent
+ * and the write latency in RunMetrics. It belongs behind a QueuedSink, on the writer threads, so
+ * the time measured is the write itself rather than the wait for a place in the queue.
+ */
+public class TimedSink implements OutputSink {
+
+  private final OutputSink sink;
+  private final RunMetrics metrics;
+
+  /**
+   * Creates a timing sink in front of another sink.
+   *
+   * @param sink    OutputSink the documents are written to.
+   * @param metrics RunMetrics the write times are recorded in, or null to only record events.
+   */
+  public TimedSink(OutputSink sink, RunMetrics metrics) {
+    this.sink = sink;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void write(String name, CharSequence content) throws IOException {
+    long start = metrics == null ? 0 : System.nanoTime();
+    FileWrittenEvent event = new FileWrittenEvent();
+    event.begin();
+    sink.write(name, content);
+    event.finish(-1, name, content);
+    if (metrics != null) {
+      metrics.written(System.nanoTime() - start, content.length());
+    }
+  }
+
+  @Override
+  public void writeUtf8(String name, ByteBuffer content) throws IOException {
+    // The sink consumes the buffer, so it is measured up front.
+    int bytes = content.remaining();
+    int chars = metrics == null ? 0 : utf16Length(content);
+    long start = metrics == null ? 0 : System.nanoTime();
+    FileWrittenEvent event = new FileWrittenEvent();
+    event.begin();
+    sink.writeUtf8(name, content);
+    event.finish(-1, name, bytes);
+    if (metrics != null) {
+      metrics.written(System.nanoTime() - start, chars);
+    }
+  }
+
+  @Override
+  public boolean acceptsUtf8() {
+    return sink.acceptsUtf8();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    sink.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    sink.close();
+  }
+
+  /**
+   * Counts the characters of UTF-8 text as a String would hold them: one per byte that starts a
+   * character, and two for the four-byte ones outside the Basic Multilingual Plane.
+   */
+  static int utf16Length(ByteBuffer utf8) {
+    int chars = 0;
+    for (int i = utf8.position(); i < utf8.limit(); i++) {
+      int b = utf8.get(i) & 0xff;
+      if (b < 0x80 || b >= 0xc0) {
+        chars += b >= 0xf0 ? 2 : 1;
+      }
+    }
+    return chars;
+  }
+}
@@ -0,0 +1,106 @@
+package FileWriter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A growable direct ByteBuffer that a document is rendered into as UTF-8, so it can be handed to
+ * a FileChannel without building a String and encoding it again. Template literals are copied in
+ * as bytes encoded once at compile time; field values are encoded character by character. Lone
+ * surrogates become '?', as they do with a replacing CharsetEncoder. Every thread renders into a
+ * buffer of its own, which is reused for the next document.
+ */
+final class Utf8Buffer {
+
+  private static final int INITIAL_CAPACITY = 16 * 1024;
+
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+  private int chars;
+
+  /**
+   * Empties the buffer for the next document.
+   *
+   * @param expectedLength int, the number of bytes the document is expected to take.
+   */
+  void reset(int expectedLength) {
+    buffer.clear();
+    chars = 0;
+    ensure(expectedLength);
+  }
+
+  /**
+   * Appends bytes that were encoded up front.
+   *
+   * @param utf8  byte[], the UTF-8 bytes.
+   * @param chars int, the number of characters they encode.
+   */
+  void append(byte[] utf8, int chars) {
+    ensure(utf8.length);
+    buffer.put(utf8);
+    this.chars += chars;
+  }
+
+  /**
+   * Encodes a value and appends it.
+   *
+   * @param value String, the value to append.
+   */
+  void append(String value) {
+    int length = value.length();
+    ensure(length * 3);
+    ByteBuffer out = buffer;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        out.put((byte) c);
+      } else if (c < 0x800) {
+        out.put((byte) (0xc0 | c >> 6));
+        out.put((byte) (0x80 | c & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          out.put((byte) (0xf0 | codePoint >> 18));
+          out.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+          out.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+          out.put((byte) (0x80 | codePoint & 0x3f));
+        } else {
+          out.put((byte) '?');
+        }
+      } else {
+        out.put((byte) (0xe0 | c >> 12));
+        out.put((byte) (0x80 | c >> 6 & 0x3f));
+        out.put((byte) (0x80 | c & 0x3f));
+      }
+    }
+    chars += length;
+  }
+
+  private void ensure(int bytes) {
+    if (buffer.remaining() < bytes) {
+      ByteBuffer larger = ByteBuffer.allocateDirect(
+          Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+      buffer.flip();
+      larger.put(buffer);
+      buffer = larger;
+    }
+  }
+
+  /**
+   * Gets the rendered document, ready to be written. The view shares the buffer's content and
+   * is only valid until the thread renders its next document.
+   *
+   * @return ByteBuffer from the first to the last byte of the document.
+   */
+  ByteBuffer content() {
+    return buffer.duplicate().flip();
+  }
+
+  /**
+   * Gets the number of characters of the document.
+   *
+   * @return int, the length of the document as a String.
+   */
+  int chars() {
+    return chars;
+  }
+}
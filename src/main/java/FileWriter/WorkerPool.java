@@ -0,0 +1,130 @@
+package FileWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A fixed pool of worker threads that runs OutputTasks in parallel. The number of tasks in flight
+ * is bounded so a fast producer cannot queue up the whole CSV, and the first failure of any worker
+ * is kept and rethrown to the producer.
+ */
+public class WorkerPool implements AutoCloseable {
+
+  private static final int TASKS_PER_THREAD = 4;
+
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final int maxInFlight;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  /**
+   * Creates a pool with the given number of worker threads.
+   *
+   * @param threads   int, the number of worker threads, at least 1.
+   */
+  public WorkerPool(int threads) {
+    this(threads, threads * TASKS_PER_THREAD, "output-worker");
+  }
+
+  /**
+   * Creates a pool with the given number of worker threads and bound on the tasks in flight.
+   *
+   * @param threads     int, the number of worker threads, at least 1.
+   * @param maxInFlight int, the most tasks submitted but not yet finished, at least 1.
+   * @param threadName  String, the name of the worker threads.
+   */
+  WorkerPool(int threads, int maxInFlight, String threadName) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("Number of tasks in flight must be at least 1: " + maxInFlight);
+    }
+    this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.maxInFlight = maxInFlight;
+    this.permits = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Submits a task, blocking while too many tasks are already in flight.
+   *
+   * @param task   OutputTask, the task to run.
+   * @throws IOException   if an earlier task failed, or the caller is interrupted.
+   */
+  public void submit(OutputTask task) throws IOException {
+    rethrowFailure();
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while submitting output task");
+    }
+    executor.execute(() -> {
+      try {
+        if (failure.get() == null) {
+          task.run();
+        }
+      } catch (IOException | RuntimeException | Error e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        permits.release();
+      }
+    });
+  }
+
+  /**
+   * Waits until every submitted task has finished.
+   *
+   * @throws IOException   if any task failed, or the caller is interrupted.
+   */
+  public void await() throws IOException {
+    try {
+      permits.acquire(maxInFlight);
+      permits.release(maxInFlight);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for output tasks");
+    }
+    rethrowFailure();
+  }
+
+  /**
+   * Rethrows the first failure of any worker, if there is one.
+   *
+   * @throws IOException   if a task failed with an IOException.
+   */
+  private void rethrowFailure() throws IOException {
+    Throwable t = failure.get();
+    if (t instanceof IOException) {
+      throw new IOException("Failed to generate output files: " + t.getMessage(), t);
+    }
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
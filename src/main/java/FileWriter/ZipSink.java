@@ -0,0 +1,66 @@
+package FileWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams rendered documents into a single ZIP archive instead of one small file per document.
+ * Entries are written one after another, so producing millions of documents costs one sequential
+ * write instead of millions of file creations. Writes are synchronized so worker threads can share
+ * one archive.
+ */
+public class ZipSink implements OutputSink {
+
+  /** The name of the archive created in the output directory. */
+  public static final String ARCHIVE_NAME = "documents.zip";
+
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  private final ZipOutputStream zip;
+  private final byte[] scratch = new byte[BUFFER_SIZE];
+
+  /**
+   * Creates the archive, replacing any existing file.
+   *
+   * @param filePath   String, the path of the archive to create.
+   * @throws IOException   if the archive cannot be created.
+   */
+  public ZipSink(String filePath) throws IOException {
+    zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE));
+    zip.setLevel(Deflater.BEST_SPEED);
+  }
+
+  @Override
+  public synchronized void write(String name, CharSequence content) throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    zip.write(content.toString().getBytes(StandardCharsets.UTF_8));
+    zip.closeEntry();
+  }
+
+  @Override
+  public synchronized void writeUtf8(String name, ByteBuffer content) throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    while (content.hasRemaining()) {
+      int length = Math.min(content.remaining(), scratch.length);
+      content.get(scratch, 0, length);
+      zip.write(scratch, 0, length);
+    }
+    zip.closeEntry();
+  }
+
+  @Override
+  public boolean acceptsUtf8() {
+    return true;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    zip.close();
+  }
+}
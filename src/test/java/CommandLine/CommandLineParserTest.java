@@ -2,12 +2,17 @@ package CommandLine;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.File;
+import java.io.IOException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 
 class CommandLineParserTest {
   private CommandLineParser testparser;
+  @TempDir
+  File tempDir;
   @BeforeEach
   void setUp() throws InvalidArgumentException {
     testparser = new CommandLineParser(new String[]{});
@@ -232,4 +237,167 @@ class CommandLineParserTest {
     assertFalse(CommandLineParser.isValidFolderPath(s));
     assertFalse(CommandLineParser.isValidFilePath(s));
   }
-}
\ No newline at end of file
+
+  @Test
+  void getPort() throws InvalidArgumentException {
+    assertEquals(-1, testparser.getPort());
+
+    CommandLineParser parser = new CommandLineParser(new String[]{"--serve", "7070", "--threads", "4"});
+    assertEquals(7070, parser.getPort());
+    assertEquals(4, parser.getThreads());
+
+    assertFalse(new CommandLineParser(new String[]{"--serve", "70000"}).hasOption("--serve"));
+
+    CommandLineParser watch = new CommandLineParser(new String[]{"--watch", "/data/inbox"});
+    assertEquals("/data/inbox", watch.getPath("--watch"));
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--watch"}));
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--serve"}));
+  }
+
+  @Test
+  void metricsOptions() throws InvalidArgumentException {
+    assertEquals(0, testparser.getProgressSeconds());
+
+    CommandLineParser parser = new CommandLineParser(new String[]{"--metrics", "--progress", "5",
+        "--metrics-json", "/tmp/metrics.json"});
+    assertTrue(parser.hasOption("--metrics"));
+    assertEquals(5, parser.getProgressSeconds());
+    assertEquals("/tmp/metrics.json", parser.getPath("--metrics-json"));
+
+    assertFalse(new CommandLineParser(new String[]{"--progress", "0"}).hasOption("--progress"));
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--progress"}));
+  }
+
+  @Test
+  void getShard() throws InvalidArgumentException {
+    assertEquals(1, testparser.getShardIndex());
+    assertEquals(1, testparser.getShardCount());
+
+    CommandLineParser parser = new CommandLineParser(new String[]{"--shard", "3/8"});
+    assertEquals(3, parser.getShardIndex());
+    assertEquals(8, parser.getShardCount());
+
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--shard"}));
+  }
+
+  @Test
+  void isValidShard() {
+    assertTrue(CommandLineParser.isValidShard("1/1"));
+    assertTrue(CommandLineParser.isValidShard("8/8"));
+    assertFalse(CommandLineParser.isValidShard("0/8"));
+    assertFalse(CommandLineParser.isValidShard("9/8"));
+    assertFalse(CommandLineParser.isValidShard("3-8"));
+  }
+
+  @Test
+  void isValidPort() {
+    assertTrue(CommandLineParser.isValidPort("1"));
+    assertTrue(CommandLineParser.isValidPort("65535"));
+    assertFalse(CommandLineParser.isValidPort("0"));
+    assertFalse(CommandLineParser.isValidPort("65536"));
+    assertFalse(CommandLineParser.isValidPort("port"));
+  }
+
+  @Test
+  void resumeOption() throws InvalidArgumentException {
+    assertFalse(testparser.hasOption("--resume"));
+
+    CommandLineParser parser = new CommandLineParser(new String[]{"--resume"});
+    assertTrue(parser.hasOption("--resume"));
+    assertFalse(parser.hasOption("--incremental"));
+
+    CommandLineParser incremental = new CommandLineParser(new String[]{"--incremental"});
+    assertTrue(incremental.hasOption("--incremental"));
+  }
+
+  @Test
+  void getThreads() throws InvalidArgumentException {
+    assertEquals(1, testparser.getThreads());
+
+    CommandLineParser parser = new CommandLineParser(new String[]{"--threads", "8"});
+    assertEquals(8, parser.getThreads());
+
+    CommandLineParser invalid = new CommandLineParser(new String[]{"--threads", "zero"});
+    assertFalse(invalid.hasOption("--threads"));
+    assertEquals(1, invalid.getThreads());
+
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--threads"}));
+  }
+
+  @Test
+  void templateCacheOption() throws InvalidArgumentException {
+    CommandLineParser parser = new CommandLineParser(new String[]{"--template-cache", "/tmp/layouts"});
+    assertEquals("/tmp/layouts", parser.getPath("--template-cache"));
+
+    assertFalse(new CommandLineParser(new String[]{"--template-cache", "layouts"}).hasOption("--template-cache"));
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--template-cache"}));
+  }
+
+  @Test
+  void csvCacheOption() throws InvalidArgumentException {
+    CommandLineParser parser = new CommandLineParser(new String[]{"--csv-cache", "/tmp/tables"});
+    assertEquals("/tmp/tables", parser.getPath("--csv-cache"));
+
+    assertFalse(new CommandLineParser(new String[]{"--csv-cache", "tables"}).hasOption("--csv-cache"));
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--csv-cache"}));
+  }
+
+  @Test
+  void getBatchSize() throws InvalidArgumentException {
+    assertEquals(16, testparser.getBatchSize());
+
+    CommandLineParser parser = new CommandLineParser(new String[]{"--threads", "4", "--batch-size", "100"});
+    assertEquals(100, parser.getBatchSize());
+
+    assertFalse(new CommandLineParser(new String[]{"--batch-size", "0"}).hasOption("--batch-size"));
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--batch-size"}));
+  }
+
+  @Test
+  void isValidBatchSize() {
+    assertTrue(CommandLineParser.isValidBatchSize("100000"));
+    assertFalse(CommandLineParser.isValidBatchSize("0"));
+    assertFalse(CommandLineParser.isValidBatchSize("rows"));
+    assertFalse(CommandLineParser.isValidBatchSize(null));
+  }
+
+  @Test
+  void isValidOutputFilePath() throws IOException {
+    File file = new File(tempDir, "metrics.json");
+    assertTrue(CommandLineParser.isValidOutputFilePath(file.getPath()));
+    assertTrue(CommandLineParser.isValidOutputFilePath(tempDir.getPath() + "/reports/june/metrics.json"));
+    assertTrue(file.createNewFile());
+    assertFalse(CommandLineParser.isValidOutputFilePath(file.getPath() + "/metrics.json"));
+    assertFalse(CommandLineParser.isValidOutputFilePath(tempDir.getPath()));
+    assertFalse(CommandLineParser.isValidOutputFilePath("metrics.json"));
+    assertFalse(CommandLineParser.isValidOutputFilePath(null));
+  }
+
+  @Test
+  void isValidThreadCount() {
+    assertTrue(CommandLineParser.isValidThreadCount("4"));
+    assertFalse(CommandLineParser.isValidThreadCount("0"));
+    assertFalse(CommandLineParser.isValidThreadCount("-2"));
+    assertFalse(CommandLineParser.isValidThreadCount(null));
+  }
+
+  @Test
+  void getTemplatePath() throws InvalidArgumentException {
+    String[] args = {
+        "--template", "reminder", "/path/to/reminder.txt",
+        "--template", "notice", "/path/to/notice.txt",
+        "--template", "reminder", "/path/to/other.txt",
+        "--template", "bad type", "/path/to/bad.txt",
+        "--output-dir", "/path/to/output",
+        "--csv-file", "/path/to/data.csv"
+    };
+    CommandLineParser parser = new CommandLineParser(args);
+
+    assertEquals(2, parser.getTemplatePath().size());
+    assertEquals("/path/to/reminder.txt", parser.getTemplatePath().get("reminder"));
+    assertEquals("/path/to/notice.txt", parser.getTemplatePath().get("notice"));
+    assertTrue(parser.validateParser(parser));
+
+    assertThrows(InvalidArgumentException.class, () -> new CommandLineParser(new String[]{"--template", "reminder"}));
+  }
+}
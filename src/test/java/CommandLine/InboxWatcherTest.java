@@ -0,0 +1,67 @@
+package CommandLine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InboxWatcherTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void jobArguments() {
+    assertArrayEquals(new String[]{"--email", "--email-template", "/t/email.txt"},
+        InboxWatcher.jobArguments(new String[]{"--watch", "/in", "--email", "--email-template",
+            "/t/email.txt", "--output-dir", "/out", "--threads", "2"}));
+  }
+
+  @Test
+  void processesDroppedCsvFiles() throws Exception {
+    File inbox = new File(tempDir, "inbox");
+    inbox.mkdirs();
+    File outputDir = new File(tempDir, "out");
+    File template = new File(tempDir, "email.txt");
+    Files.writeString(template.toPath(), "Dear [[first_name]]");
+    // Already in the inbox when the watcher starts.
+    Files.writeString(new File(inbox, "monday.csv").toPath(), "\"first_name\"\n\"John\"\n");
+
+    String[] jobArgs = {"--email", "--email-template", template.getAbsolutePath()};
+    Thread watching;
+    try (InboxWatcher watcher = new InboxWatcher(inbox.getAbsolutePath(),
+        outputDir.getAbsolutePath(), jobArgs, 2)) {
+      watching = new Thread(() -> {
+        try {
+          watcher.watch();
+        } catch (Exception e) {
+          fail(e);
+        }
+      });
+      watching.start();
+
+      File staged = new File(tempDir, "tuesday.tmp");
+      Files.writeString(staged.toPath(), "\"first_name\"\n\"Jane\"\n");
+      Files.move(staged.toPath(), new File(inbox, "tuesday.csv").toPath(), StandardCopyOption.ATOMIC_MOVE);
+      Files.writeString(new File(inbox, "broken.csv").toPath(), "");
+
+      File processed = new File(inbox, InboxWatcher.PROCESSED_DIR);
+      File failed = new File(inbox, InboxWatcher.FAILED_DIR);
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (!(new File(processed, "monday.csv").exists() && new File(processed, "tuesday.csv").exists()
+          && new File(failed, "broken.csv").exists()) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+    }
+    watching.join(5000);
+
+    String nl = System.lineSeparator();
+    assertEquals("Dear John" + nl, Files.readString(new File(outputDir, "monday/email 1.txt").toPath()));
+    assertEquals("Dear Jane" + nl, Files.readString(new File(outputDir, "tuesday/email 1.txt").toPath()));
+    assertTrue(new File(inbox, InboxWatcher.FAILED_DIR + "/broken.csv").exists());
+    assertFalse(new File(inbox, "tuesday.csv").exists());
+  }
+}
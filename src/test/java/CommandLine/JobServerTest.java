@@ -0,0 +1,124 @@
+package CommandLine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JobServerTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void splitArguments() {
+    assertArrayEquals(new String[]{"--csv-file", "/tmp/my file.csv", "--zip"},
+        JobServer.splitArguments("  --csv-file \"/tmp/my file.csv\"   --zip "));
+    assertArrayEquals(new String[]{"a", ""}, JobServer.splitArguments("a \"\""));
+    assertEquals(0, JobServer.splitArguments("   ").length);
+  }
+
+  @Test
+  void runsJobsSentOverSocket() throws Exception {
+    File csv = new File(tempDir, "customers.csv");
+    Files.writeString(csv.toPath(), "\"first_name\"\n\"John\"\n\"Jane\"\n");
+    File template = new File(tempDir, "email.txt");
+    Files.writeString(template.toPath(), "Dear [[first_name]]");
+    File outputDir = new File(tempDir, "out");
+
+    try (JobServer server = new JobServer(0, 2)) {
+      Thread serving = new Thread(() -> {
+        try {
+          server.serve();
+        } catch (Exception e) {
+          fail(e);
+        }
+      });
+      serving.start();
+
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+          BufferedReader in = new BufferedReader(
+              new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+          PrintWriter out = new PrintWriter(
+              new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+        String job = "--email --email-template " + template.getAbsolutePath() + " --output-dir "
+            + outputDir.getAbsolutePath() + " --csv-file " + csv.getAbsolutePath();
+        out.println(job);
+        assertEquals("OK", in.readLine());
+        out.println(job);
+        assertEquals("OK", in.readLine());
+        out.println("--email");
+        assertEquals("INVALID", in.readLine());
+        out.println(JobServer.SHUTDOWN);
+        assertEquals("OK", in.readLine());
+      }
+      serving.join(5000);
+      assertFalse(serving.isAlive());
+
+      assertEquals("Dear Jane" + System.lineSeparator(),
+          Files.readString(new File(outputDir, "email 2.txt").toPath()));
+      assertEquals(1, server.getTemplateCache().getMisses());
+      assertEquals(1, server.getTemplateCache().getHits());
+    }
+  }
+
+  @Test
+  void shutdownWaitsForRunningJobs() throws Exception {
+    StringBuilder content = new StringBuilder("\"first_name\"\n");
+    for (int i = 1; i <= 2000; i++) {
+      content.append("\"Person").append(i).append("\"\n");
+    }
+    File csv = new File(tempDir, "customers.csv");
+    Files.writeString(csv.toPath(), content);
+    File template = new File(tempDir, "email.txt");
+    Files.writeString(template.toPath(), "Dear [[first_name]]");
+    File outputDir = new File(tempDir, "out");
+
+    JobServer server = new JobServer(0, 3);
+    Thread serving = new Thread(() -> {
+      try {
+        server.serve();
+      } catch (Exception e) {
+        fail(e);
+      }
+    });
+    serving.start();
+
+    try (Socket running = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        Socket idle = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        Socket stopping = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      PrintWriter job = new PrintWriter(
+          new OutputStreamWriter(running.getOutputStream(), StandardCharsets.UTF_8), true);
+      job.println("--email --email-template " + template.getAbsolutePath() + " --output-dir "
+          + outputDir.getAbsolutePath() + " --csv-file " + csv.getAbsolutePath());
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (!(outputDir.isDirectory() && outputDir.list().length > 0)
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+      PrintWriter stop = new PrintWriter(
+          new OutputStreamWriter(stopping.getOutputStream(), StandardCharsets.UTF_8), true);
+      stop.println(JobServer.SHUTDOWN);
+
+      // serve returns only once the job that was running has written all of its files.
+      serving.join(60_000);
+      assertFalse(serving.isAlive());
+      assertEquals(2000, outputDir.list().length);
+      assertEquals("OK", new BufferedReader(new InputStreamReader(
+          running.getInputStream(), StandardCharsets.UTF_8)).readLine());
+      // The idle connection was closed instead of keeping the server alive.
+      assertNull(new BufferedReader(new InputStreamReader(
+          idle.getInputStream(), StandardCharsets.UTF_8)).readLine());
+    }
+    server.close();
+  }
+}
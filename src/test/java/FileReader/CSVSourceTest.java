@@ -0,0 +1,92 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CSVSourceTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void checkpointsAndResume() throws IOException {
+    StringBuilder content = new StringBuilder("\"name\",\"note\"\r\n");
+    int rows = CSVSource.CHECKPOINT_INTERVAL * 2 + 5;
+    for (int i = 1; i <= rows; i++) {
+      content.append("\"Zoë ").append(i).append("\",\"a, \"\"quoted\"\"\nnote\"\r\n");
+    }
+    File csv = new File(tempDir, "customers.csv");
+    Files.writeString(csv.toPath(), content, StandardCharsets.UTF_8);
+
+    List<long[]> checkpoints = new ArrayList<>();
+    new CSVSource(csv.getPath()).forEachRow(new RowHandler() {
+      @Override
+      public void handle(int rowNumber, List<String> row) {
+      }
+
+      @Override
+      public void checkpoint(int nextRow, long byteOffset) {
+        checkpoints.add(new long[]{nextRow, byteOffset});
+      }
+    });
+    assertEquals(2, checkpoints.size());
+    long[] second = checkpoints.get(1);
+    assertEquals(CSVSource.CHECKPOINT_INTERVAL * 2, second[0]);
+
+    CSVSource resumed = new CSVSource(csv.getPath());
+    resumed.setStart((int) second[0], second[1]);
+    List<Integer> rowNumbers = new ArrayList<>();
+    List<List<String>> values = new ArrayList<>();
+    resumed.forEachRow((rowNumber, row) -> {
+      rowNumbers.add(rowNumber);
+      values.add(row);
+    });
+
+    assertEquals(0, rowNumbers.get(0));
+    assertEquals(List.of("name", "note"), values.get(0));
+    assertEquals(CSVSource.CHECKPOINT_INTERVAL * 2, rowNumbers.get(1));
+    assertEquals(List.of("Zoë " + second[0], "a, \"quoted\"\nnote"), values.get(1));
+    assertEquals(7, rowNumbers.size());
+    assertEquals(rows + 1, resumed.getRowsRead());
+  }
+
+  @Test
+  void recordsChunkEvents() throws IOException {
+    StringBuilder content = new StringBuilder("\"name\"\n");
+    int rows = CSVSource.CHECKPOINT_INTERVAL + 10;
+    for (int i = 1; i <= rows; i++) {
+      content.append("\"Person ").append(i).append("\"\n");
+    }
+    File csv = new File(tempDir, "customers.csv");
+    Files.writeString(csv.toPath(), content, StandardCharsets.UTF_8);
+
+    File recordingFile = new File(tempDir, "chunks.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(CSVChunkParsedEvent.class);
+      recording.start();
+      new CSVSource(csv.getPath()).forEachRow((rowNumber, row) -> { });
+      recording.stop();
+      recording.dump(recordingFile.toPath());
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile.toPath());
+    assertEquals(2, events.size());
+    events.sort((a, b) -> Integer.compare(a.getInt("firstRow"), b.getInt("firstRow")));
+    assertEquals(1, events.get(0).getInt("firstRow"));
+    assertEquals(CSVSource.CHECKPOINT_INTERVAL - 1, events.get(0).getInt("rows"));
+    assertEquals(CSVSource.CHECKPOINT_INTERVAL, events.get(1).getInt("firstRow"));
+    assertEquals(11, events.get(1).getInt("rows"));
+    assertEquals(csv.length(), events.get(0).getLong("bytes") + events.get(1).getLong("bytes"));
+  }
+}
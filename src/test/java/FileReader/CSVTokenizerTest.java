@@ -0,0 +1,70 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CSVTokenizerTest {
+
+  @Test
+  void parseLineQuotedAndUnquoted() {
+    assertEquals(List.of("John", "Doe", "ACME"), CSVTokenizer.parseLine("\"John\",\"Doe\",\"ACME\""));
+    assertEquals(List.of("John", "Doe", "30"), CSVTokenizer.parseLine("John,\"Doe\",30"));
+    assertEquals(List.of("Benton, John B Jr"), CSVTokenizer.parseLine("\"Benton, John B Jr\""));
+  }
+
+  @Test
+  void parseLineEscapedQuotesAndEmptyFields() {
+    assertEquals(List.of("say \"hi\"", "", "x"), CSVTokenizer.parseLine("\"say \"\"hi\"\"\",,x"));
+    assertEquals(List.of("", ""), CSVTokenizer.parseLine(","));
+    assertTrue(CSVTokenizer.parseLine("").isEmpty());
+  }
+
+  @Test
+  void parseLineMatchesNextRecord() throws IOException {
+    String[] lines = {"a,\"b\r\nc\",d", "\"x\"tail,\"unclosed", "5\" wide,\"\"\"\"", "a,\r\nb", "\n", "a,"};
+    for (String line : lines) {
+      assertEquals(new CSVTokenizer(new StringReader(line)).nextRecord(), CSVTokenizer.parseLine(line), line);
+    }
+    assertEquals(List.of("a", "b\nc", "d"), CSVTokenizer.parseLine("a,\"b\r\nc\",d"));
+  }
+
+  @Test
+  void nextRecordAcrossLines() throws IOException {
+    CSVTokenizer tokenizer = new CSVTokenizer(
+        new StringReader("\"name\",\"note\"\r\n\"Ann\",\"first line\nsecond line\"\n\n\"Bob\",\"\"\n"));
+
+    assertEquals(List.of("name", "note"), tokenizer.nextRecord());
+    assertEquals(List.of("Ann", "first line\nsecond line"), tokenizer.nextRecord());
+    assertTrue(tokenizer.nextRecord().isEmpty());
+    assertEquals(List.of("Bob", ""), tokenizer.nextRecord());
+    assertNull(tokenizer.nextRecord());
+  }
+
+  @Test
+  void nextRecordSharesRepeatedValues() throws IOException {
+    CSVTokenizer tokenizer = new CSVTokenizer(new StringReader("name,state\nAnn,NY\nBob,\"NY\"\n"));
+    tokenizer.nextRecord();
+    List<String> first = tokenizer.nextRecord();
+    List<String> second = tokenizer.nextRecord();
+
+    assertEquals(List.of("Bob", "NY"), second);
+    assertSame(first.get(1), second.get(1));
+  }
+
+  @Test
+  void nextRecordWithProjection() throws IOException {
+    CSVTokenizer tokenizer = new CSVTokenizer(
+        new StringReader("a,b,c,d\n\"1\",\"skip, me\",3,\"x\"\"y\"\n5,,7\n"));
+
+    assertEquals(List.of("a", "b", "c", "d"), tokenizer.nextRecord());
+    tokenizer.setWantedColumns(new boolean[]{true, false, true, false});
+    assertEquals(Arrays.asList("1", null, "3", null), tokenizer.nextRecord());
+    assertEquals(Arrays.asList("5", null, "7"), tokenizer.nextRecord());
+    assertNull(tokenizer.nextRecord());
+  }
+}
@@ -0,0 +1,51 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ColumnInternerTest {
+
+  private static String bytes(ColumnInterner interner, int column, String value) {
+    byte[] utf8 = (value + "trailing scratch").getBytes(StandardCharsets.UTF_8);
+    return interner.intern(column, utf8, value.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  @Test
+  void internSharesRepeatedValuesPerColumn() {
+    ColumnInterner interner = new ColumnInterner();
+    String state = bytes(interner, 0, "Zürich");
+    assertEquals("Zürich", state);
+    assertSame(state, bytes(interner, 0, "Zürich"));
+    assertNotSame(state, bytes(interner, 1, "Zürich"));
+
+    StringBuilder field = new StringBuilder("NY");
+    String city = interner.intern(2, field);
+    field.setLength(0);
+    field.append("NY");
+    assertSame(city, interner.intern(2, field));
+    assertEquals("", interner.intern(2, new StringBuilder()));
+  }
+
+  @Test
+  void internKeepsEveryDistinctValue() {
+    ColumnInterner interner = new ColumnInterner();
+    for (int i = 0; i < 3000; i++) {
+      // 300 distinct values stay interned through several resizes of the table.
+      assertEquals("City " + (i % 300), bytes(interner, 0, "City " + (i % 300)));
+    }
+    assertSame(bytes(interner, 0, "City 7"), bytes(interner, 0, "City 7"));
+  }
+
+  @Test
+  void internGivesUpOnHighCardinalityColumns() {
+    ColumnInterner interner = new ColumnInterner();
+    for (int i = 0; i < ColumnInterner.SAMPLE_SIZE; i++) {
+      interner.intern(0, new StringBuilder("user").append(i).append("@example.com"));
+    }
+    String first = interner.intern(0, new StringBuilder("user1@example.com"));
+    assertEquals("user1@example.com", first);
+    assertNotSame(first, interner.intern(0, new StringBuilder("user1@example.com")));
+  }
+}
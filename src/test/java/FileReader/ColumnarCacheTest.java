@@ -0,0 +1,150 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColumnarCacheTest {
+
+  @TempDir
+  File tempDir;
+
+  private Path writeCsv(int rows) throws IOException {
+    StringBuilder content = new StringBuilder("\"id\",\"name\",\"city\",\"state\"\n");
+    for (int i = 1; i <= rows; i++) {
+      // Unique ids need 4 byte codes, 300 cities 2 byte codes and two states 1 byte codes.
+      content.append(i).append(",\"Zoë ").append(i % 7).append("\",\"City ").append(i % 300)
+          .append("\",").append(i % 2 == 0 ? "NY" : "\"\"").append('\n');
+      if (i % 1000 == 0) {
+        content.append("ragged,\"two\nlines\"\n");
+      }
+    }
+    Path file = tempDir.toPath().resolve("members.csv");
+    Files.writeString(file, content, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private static List<List<Object>> read(CSVSource source) throws IOException {
+    List<List<Object>> events = new ArrayList<>();
+    source.forEachRow(new RowHandler() {
+      @Override
+      public void handle(int rowNumber, List<String> row) {
+        events.add(List.of(rowNumber, new ArrayList<>(row)));
+      }
+
+      @Override
+      public void checkpoint(int nextRow, long byteOffset) {
+        events.add(List.of("checkpoint", nextRow, byteOffset));
+      }
+    });
+    return events;
+  }
+
+  @Test
+  void cachedRowsMatchParsedRows() throws IOException {
+    Path csv = writeCsv(70_000);
+    Path cache = tempDir.toPath().resolve("members.csv" + ColumnarCache.EXTENSION);
+    List<List<Object>> parsed = read(new CSVSource(csv.toString()));
+
+    CSVSource building = new CSVSource(csv.toString());
+    building.setCache(cache);
+    assertEquals(parsed, read(building));
+    assertTrue(Files.exists(cache));
+    // The spill files the cache was built from are gone.
+    try (Stream<Path> files = Files.list(tempDir.toPath())) {
+      assertEquals(2, files.count());
+    }
+
+    ColumnarCache opened = ColumnarCache.open(cache, csv);
+    assertNotNull(opened);
+    assertEquals(70_070, opened.getRows());
+
+    CSVSource cached = new CSVSource(csv.toString());
+    cached.setCache(cache);
+    assertEquals(parsed, read(cached));
+    assertEquals(building.getRowsRead(), cached.getRowsRead());
+  }
+
+  @Test
+  void cachedRowsHonourColumnsAndStart() throws IOException {
+    Path csv = writeCsv(25_000);
+    Path cache = tempDir.toPath().resolve("members.csv" + ColumnarCache.EXTENSION);
+    CSVSource building = new CSVSource(csv.toString());
+    building.setCache(cache);
+    read(building);
+
+    List<List<Object>> checkpoints = new ArrayList<>();
+    for (List<Object> event : read(new CSVSource(csv.toString()))) {
+      if (event.get(0).equals("checkpoint")) {
+        checkpoints.add(event);
+      }
+    }
+    int startRow = (Integer) checkpoints.get(0).get(1);
+    long startOffset = (Long) checkpoints.get(0).get(2);
+
+    CSVSource parsing = new CSVSource(csv.toString());
+    parsing.setColumns(Set.of("city"));
+    parsing.setStart(startRow, startOffset);
+    CSVSource cached = new CSVSource(csv.toString());
+    cached.setCache(cache);
+    cached.setColumns(Set.of("city"));
+    cached.setStart(startRow, startOffset);
+
+    List<List<Object>> rows = read(cached);
+    assertEquals(read(parsing), rows);
+    assertEquals(List.of(startRow, Arrays.asList(null, null, "City 91", null)), rows.get(1));
+  }
+
+  @Test
+  void openIgnoresCacheOfChangedFile() throws IOException {
+    Path csv = writeCsv(50);
+    Path cache = tempDir.toPath().resolve("members.csv" + ColumnarCache.EXTENSION);
+    CSVSource building = new CSVSource(csv.toString());
+    building.setCache(cache);
+    read(building);
+    assertNotNull(ColumnarCache.open(cache, csv));
+
+    // Same size and modification time, different content.
+    FileTime modified = Files.getLastModifiedTime(csv);
+    Files.writeString(csv, Files.readString(csv).replace("\"City 1\"", "\"City 9\""));
+    Files.setLastModifiedTime(csv, modified);
+    assertNull(ColumnarCache.open(cache, csv));
+
+    // A run over the changed file rebuilds the cache.
+    CSVSource rebuilding = new CSVSource(csv.toString());
+    rebuilding.setCache(cache);
+    assertEquals(read(new CSVSource(csv.toString())), read(rebuilding));
+    assertNotNull(ColumnarCache.open(cache, csv));
+
+    Files.setLastModifiedTime(csv, FileTime.fromMillis(modified.toMillis() - 60_000));
+    assertNull(ColumnarCache.open(cache, csv));
+  }
+
+  @Test
+  void openIgnoresDamagedCache() throws IOException {
+    Path csv = writeCsv(50);
+    Path cache = tempDir.toPath().resolve("members.csv" + ColumnarCache.EXTENSION);
+    CSVSource building = new CSVSource(csv.toString());
+    building.setCache(cache);
+    read(building);
+
+    byte[] bytes = Files.readAllBytes(cache);
+    Files.write(cache, Arrays.copyOf(bytes, bytes.length / 2));
+    assertNull(ColumnarCache.open(cache, csv));
+
+    Files.write(cache, new byte[]{1, 2, 3});
+    assertNull(ColumnarCache.open(cache, csv));
+  }
+}
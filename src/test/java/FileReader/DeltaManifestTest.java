@@ -0,0 +1,56 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DeltaManifestTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void hashRow() {
+    long template = DeltaManifest.hashTemplate("Dear [[name]]", Map.of("name", 0));
+    assertEquals(DeltaManifest.hashRow(template, List.of("John", "Leeds")),
+        DeltaManifest.hashRow(template, List.of("John", "Leeds")));
+    assertNotEquals(DeltaManifest.hashRow(template, List.of("ab", "c")),
+        DeltaManifest.hashRow(template, List.of("a", "bc")));
+    assertNotEquals(DeltaManifest.hashRow(template, Arrays.asList("John", null)),
+        DeltaManifest.hashRow(template, List.of("John", "")));
+    assertNotEquals(template, DeltaManifest.hashTemplate("Dear [[name]]", Map.of("name", 1)));
+    assertNotEquals(template, DeltaManifest.hashTemplate("Hi [[name]]", Map.of("name", 0)));
+  }
+
+  @Test
+  void skipsCurrentAndRemovesGoneFiles() throws IOException {
+    String dir = tempDir.getPath();
+    Files.writeString(new File(tempDir, "email 1.txt").toPath(), "John");
+    Files.writeString(new File(tempDir, "email 2.txt").toPath(), "Jane");
+    DeltaManifest first = DeltaManifest.open(dir);
+    assertFalse(first.isCurrent("email", 1, 11));
+    first.record("email", 1, 11);
+    first.record("email", 2, 22);
+    first.save();
+
+    DeltaManifest second = DeltaManifest.open(dir);
+    assertTrue(second.isCurrent("email", 1, 11));
+    assertFalse(second.isCurrent("email", 1, 12));
+    assertFalse(second.isCurrent("letter", 1, 11));
+    second.save();
+    assertEquals(1, second.getSkipped());
+    assertEquals(1, second.getRemoved());
+    assertTrue(new File(tempDir, "email 1.txt").exists());
+    assertFalse(new File(tempDir, "email 2.txt").exists());
+
+    new File(tempDir, "email 1.txt").delete();
+    assertFalse(DeltaManifest.open(dir).isCurrent("email", 1, 11));
+  }
+}
@@ -0,0 +1,65 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedCSVReaderTest {
+
+  @TempDir
+  File tempDir;
+
+  private File writeCsv(String content) throws IOException {
+    File file = new File(tempDir, "customers.csv");
+    Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  @Test
+  void streamMatchesTokenizer() throws IOException {
+    String content = "\"first_name\",\"note\",\"city\"\r\n"
+        + "\"José\",\"said \"\"hi\"\"\",Brighton\n"
+        + "Ann,\"two\nlines\",\n"
+        + "\n"
+        + "\"Bob\",,\"Anchorage\"";
+    File file = writeCsv(content);
+
+    List<List<String>> rows = new ArrayList<>();
+    // A tiny window forces records to be re-mapped across window boundaries.
+    int count = new MappedCSVReader(file.getPath(), null, 7).stream((rowNumber, row) -> rows.add(row));
+
+    assertEquals(5, count);
+    assertEquals(List.of("first_name", "note", "city"), rows.get(0));
+    assertEquals(List.of("José", "said \"hi\"", "Brighton"), rows.get(1));
+    assertEquals(List.of("Ann", "two\nlines", ""), rows.get(2));
+    assertTrue(rows.get(3).isEmpty());
+    assertEquals(List.of("Bob", "", "Anchorage"), rows.get(4));
+  }
+
+  @Test
+  void streamDecodesOnlyWantedColumns() throws IOException {
+    File file = writeCsv("\"first_name\",\"last_name\",\"email\"\n\"John\",\"Doe\",\"john@x.com\"\n");
+
+    List<List<String>> rows = new ArrayList<>();
+    new MappedCSVReader(file.getPath(), Set.of("first_name", "email")).stream((rowNumber, row) -> rows.add(row));
+
+    assertEquals(List.of("first_name", "last_name", "email"), rows.get(0));
+    assertEquals(Arrays.asList("John", null, "john@x.com"), rows.get(1));
+  }
+
+  @Test
+  void streamEmptyFile() throws IOException {
+    File file = writeCsv("");
+
+    assertEquals(0, new MappedCSVReader(file.getPath(), null).stream((rowNumber, row) -> fail("no rows expected")));
+  }
+}
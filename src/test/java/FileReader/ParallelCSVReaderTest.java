@@ -0,0 +1,152 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelCSVReaderTest {
+
+  @TempDir
+  File tempDir;
+
+  private File writeCsv(String content) throws IOException {
+    File file = new File(tempDir, "customers.csv");
+    Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private static List<List<Object>> sequential(File file, Set<String> columns) throws IOException {
+    List<List<Object>> rows = new ArrayList<>();
+    new MappedCSVReader(file.getPath(), columns).stream((rowNumber, row) -> rows.add(List.of(rowNumber, row)));
+    return rows;
+  }
+
+  private static List<List<Object>> parallel(ParallelCSVReader reader) throws IOException {
+    List<List<Object>> rows = new ArrayList<>();
+    reader.stream((rowNumber, row) -> rows.add(List.of(rowNumber, row)));
+    return rows;
+  }
+
+  @Test
+  void streamMatchesSequentialReader() throws IOException {
+    StringBuilder content = new StringBuilder("\"first_name\",\"note\",\"city\"\r\n");
+    for (int i = 1; i <= 500; i++) {
+      content.append("\"Zoë ").append(i).append("\",\"said \"\"hi\"\"\nthen, \"\"left\"\"\",Brighton\r\n");
+      content.append("Ann").append(i).append(",\"two\r\nlines\",\n");
+    }
+    content.append("\"Bob\",,\"Anchorage\"");
+    File file = writeCsv(content.toString());
+
+    // Tiny chunks put chunk boundaries inside quoted fields and CRLFs.
+    for (int chunkSize : new int[]{13, 64, 1000, 1 << 20}) {
+      ParallelCSVReader reader = new ParallelCSVReader(file.getPath(), null, 3, chunkSize);
+      assertEquals(sequential(file, null), parallel(reader), "chunk size " + chunkSize);
+    }
+  }
+
+  @Test
+  void streamFallsBackOnStrayQuotes() throws IOException {
+    StringBuilder content = new StringBuilder("\"item\",\"size\"\n");
+    for (int i = 1; i <= 300; i++) {
+      // The quote in an unquoted field does not open a quoted field, but it does flip the count.
+      content.append("pipe ").append(i).append(",5\" wide\n");
+      content.append("\"hose\",\"a\nb\"\n");
+    }
+    File file = writeCsv(content.toString());
+
+    ParallelCSVReader reader = new ParallelCSVReader(file.getPath(), null, 4, 50);
+    List<List<Object>> rows = parallel(reader);
+
+    assertEquals(sequential(file, null), rows);
+    assertEquals(601, rows.size());
+  }
+
+  @Test
+  void checkpointsAroundStrayQuotesStartRecords() throws IOException {
+    StringBuilder content = new StringBuilder("\"item\",\"note\"\n");
+    for (int i = 1; i <= 200; i++) {
+      content.append(i == 120 ? "pipe,5\" wide\n" : "\"hose " + i + "\",\"a\nb\"\n");
+    }
+    File file = writeCsv(content.toString());
+    List<List<Object>> expected = sequential(file, null);
+
+    List<long[]> checkpoints = new ArrayList<>();
+    new ParallelCSVReader(file.getPath(), null, 3, 64).stream(new RowHandler() {
+      @Override
+      public void handle(int rowNumber, List<String> row) {
+      }
+
+      @Override
+      public void checkpoint(int nextRow, long byteOffset) {
+        checkpoints.add(new long[]{nextRow, byteOffset});
+      }
+    });
+
+    // Resuming at any checkpoint, before or after the fallback, reads the rest of the file.
+    assertFalse(checkpoints.isEmpty());
+    for (long[] checkpoint : checkpoints) {
+      MappedCSVReader resumed = new MappedCSVReader(file.getPath(), null);
+      resumed.setStart((int) checkpoint[0], checkpoint[1]);
+      List<List<Object>> rest = new ArrayList<>();
+      resumed.stream((rowNumber, row) -> rest.add(List.of(rowNumber, row)));
+      assertEquals(expected.subList((int) checkpoint[0], expected.size()), rest.subList(1, rest.size()));
+    }
+  }
+
+  @Test
+  void streamDecodesOnlyWantedColumnsAndCheckpoints() throws IOException {
+    StringBuilder content = new StringBuilder("\"first_name\",\"last_name\",\"email\"\n");
+    for (int i = 1; i <= 200; i++) {
+      content.append("\"John").append(i).append("\",\"Doe\",\"john@x.com\"\n");
+    }
+    File file = writeCsv(content.toString());
+
+    List<long[]> checkpoints = new ArrayList<>();
+    List<List<String>> rows = new ArrayList<>();
+    int count = new ParallelCSVReader(file.getPath(), Set.of("first_name", "email"), 2, 256)
+        .stream(new RowHandler() {
+          @Override
+          public void handle(int rowNumber, List<String> row) {
+            rows.add(row);
+          }
+
+          @Override
+          public void checkpoint(int nextRow, long byteOffset) {
+            checkpoints.add(new long[]{nextRow, byteOffset});
+          }
+        });
+
+    assertEquals(201, count);
+    assertEquals(List.of("first_name", "last_name", "email"), rows.get(0));
+    assertEquals(Arrays.asList("John1", null, "john@x.com"), rows.get(1));
+    assertFalse(checkpoints.isEmpty());
+
+    // Resuming at a checkpoint reads the same rows as the first run did from there on.
+    long[] checkpoint = checkpoints.get(checkpoints.size() / 2);
+    ParallelCSVReader resumed = new ParallelCSVReader(file.getPath(), null, 2, 256);
+    resumed.setStart((int) checkpoint[0], checkpoint[1]);
+    List<List<Object>> rest = parallel(resumed);
+    assertEquals(List.of(0, List.of("first_name", "last_name", "email")), rest.get(0));
+    assertEquals(List.of((int) checkpoint[0], List.of("John" + checkpoint[0], "Doe", "john@x.com")), rest.get(1));
+    assertEquals(201 - (int) checkpoint[0] + 1, rest.size());
+  }
+
+  @Test
+  void streamHeaderOnlyAndEmptyFile() throws IOException {
+    File file = writeCsv("\"first_name\",\"email\"");
+    List<List<Object>> rows = parallel(new ParallelCSVReader(file.getPath(), null, 2, 4));
+    assertEquals(List.of(List.of(0, List.of("first_name", "email"))), rows);
+
+    file = writeCsv("");
+    assertEquals(0, new ParallelCSVReader(file.getPath(), null, 2).stream((rowNumber, row) -> { }));
+  }
+}
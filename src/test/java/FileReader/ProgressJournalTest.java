@@ -0,0 +1,55 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgressJournalTest {
+
+  @TempDir
+  File tempDir;
+
+  private File csvFile(String content) throws IOException {
+    File csv = new File(tempDir, "customers.csv");
+    Files.writeString(csv.toPath(), content);
+    return csv;
+  }
+
+  @Test
+  void resumesFromLastCheckpoint() throws IOException {
+    File csv = csvFile("\"first_name\"\n\"John\"\n");
+    try (ProgressJournal journal = ProgressJournal.open(tempDir.getPath(), csv.getPath())) {
+      assertEquals(1, journal.getStartRow());
+      assertEquals(0, journal.getStartOffset());
+      journal.record(10000, 123456);
+      journal.record(20000, 234567);
+    }
+    // A torn line from a crash in the middle of a write is ignored.
+    Files.writeString(new File(tempDir, ProgressJournal.JOURNAL_NAME).toPath(), "3000",
+        java.nio.file.StandardOpenOption.APPEND);
+
+    try (ProgressJournal journal = ProgressJournal.open(tempDir.getPath(), csv.getPath())) {
+      assertEquals(20000, journal.getStartRow());
+      assertEquals(234567, journal.getStartOffset());
+      journal.complete();
+    }
+    assertFalse(new File(tempDir, ProgressJournal.JOURNAL_NAME).exists());
+  }
+
+  @Test
+  void ignoresJournalOfAnotherCsv() throws IOException {
+    File csv = csvFile("\"first_name\"\n\"John\"\n");
+    try (ProgressJournal journal = ProgressJournal.open(tempDir.getPath(), csv.getPath())) {
+      journal.record(10000, 123456);
+    }
+    Files.writeString(csv.toPath(), "\"first_name\"\n\"John\"\n\"Jane\"\n");
+
+    try (ProgressJournal journal = ProgressJournal.open(tempDir.getPath(), csv.getPath())) {
+      assertEquals(1, journal.getStartRow());
+    }
+  }
+}
@@ -9,8 +9,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipInputStream;
 
 
 class ReaderTest {
@@ -50,6 +56,8 @@ class ReaderTest {
     assertEquals("John", values.get(0));
     assertEquals("Doe", values.get(1));
     assertEquals("ACME", values.get(2));
+
+    assertEquals(List.of("John", "O\"Neil", "30"), Reader.parseCSVLine("John,\"O\"\"Neil\",30"));
   }
 
   @Test
@@ -76,6 +84,46 @@ class ReaderTest {
   }
 
 
+  @Test
+  void streamCSV() throws IOException {
+    String csvContent = "\"first_name\",\"last_name\"\n\"John\",\"Doe\"\n\"Jane\",\"Smith\"";
+    File tempFile = createTempFileWithContent(csvContent, ".csv");
+    List<Integer> rowNumbers = new ArrayList<>();
+    List<List<String>> rows = new ArrayList<>();
+    int count = Reader.streamCSV(tempFile.getPath(), (rowNumber, row) -> {
+      rowNumbers.add(rowNumber);
+      rows.add(row);
+    });
+    assertEquals(3, count);
+    assertEquals(List.of(0, 1, 2), rowNumbers);
+    assertEquals(List.of("Jane", "Smith"), rows.get(2));
+
+    File emptyFile = createTempFileWithContent("", ".csv");
+    assertThrows(IllegalArgumentException.class, () -> Reader.streamCSV(emptyFile.getPath(), (rowNumber, row) -> { }));
+  }
+
+
+  @Test
+  void streamCSVWithColumns() throws IOException {
+    String csvContent = "\"first_name\",\"last_name\",\"email\"\n\"John\",\"Doe\",\"john@x.com\"";
+    File tempFile = createTempFileWithContent(csvContent, ".csv");
+    List<List<String>> rows = new ArrayList<>();
+    Reader.streamCSV(tempFile.getPath(), (rowNumber, row) -> rows.add(row), Set.of("email", "unknown"));
+    assertEquals(List.of("first_name", "last_name", "email"), rows.get(0));
+    assertEquals(Arrays.asList(null, null, "john@x.com"), rows.get(1));
+  }
+
+  @Test
+  void projectColumns() {
+    Map<String, Integer> headerMap = Reader.headerIndex(List.of("first_name", "last_name", "email", "web"));
+    boolean[] wanted = Reader.projectColumns(Set.of("email", "first_name", "missing"), headerMap, 4);
+    assertTrue(wanted[0]);
+    assertFalse(wanted[1]);
+    assertTrue(wanted[2]);
+    assertFalse(wanted[3]);
+  }
+
+
   @Test
   void processFilesValid() throws IOException {
     File templateFile = createTempFileWithContent("template content", ".txt");
@@ -109,6 +157,135 @@ class ReaderTest {
       System.setOut(System.out);
       assertTrue(outContent.toString().contains("Incorrect: --csv-file is missing"));}
 
+  @Test
+  void processFilesZip() throws Exception {
+    File csvFile = createTempFileWithContent("\"first_name\",\"email\"\n\"John\",\"john@x.com\"\n\"Jane\",\"jane@x.com\"", ".csv");
+    File templateFile = createTempFileWithContent("To: [[email]]\nDear [[first_name]]", ".txt");
+    File outputDir = new File(tempDir, "zipped");
+
+    Reader.processFiles(new String[]{"--email", "--email-template", templateFile.getAbsolutePath(),
+        "--output-dir", outputDir.getAbsolutePath(), "--csv-file", csvFile.getAbsolutePath(), "--zip"});
+
+    assertFalse(new File(outputDir, "email 1.txt").exists());
+    try (ZipInputStream in = new ZipInputStream(new FileInputStream(new File(outputDir, "documents.zip")))) {
+      assertEquals("email 1.txt", in.getNextEntry().getName());
+      assertEquals("To: john@x.com" + System.lineSeparator() + "Dear John" + System.lineSeparator(),
+          new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      assertEquals("email 2.txt", in.getNextEntry().getName());
+      assertNull(in.getNextEntry());
+    }
+  }
+
+  @Test
+  void processFilesCustomTemplates() throws Exception {
+    File csvFile = createTempFileWithContent("\"first_name\",\"city\"\n\"John\",\"Brighton\"", ".csv");
+    File reminderFile = createTempFileWithContent("Hi [[first_name]]", ".txt");
+    File noticeFile = createTempFileWithContent("Office in [[city]]", ".txt");
+    File outputDir = new File(tempDir, "custom");
+
+    Reader.processFiles(new String[]{"--template", "reminder", reminderFile.getAbsolutePath(),
+        "--template", "notice", noticeFile.getAbsolutePath(),
+        "--output-dir", outputDir.getAbsolutePath(), "--csv-file", csvFile.getAbsolutePath()});
+
+    String nl = System.lineSeparator();
+    assertEquals("Hi John" + nl, Files.readString(new File(outputDir, "reminder 1.txt").toPath()));
+    assertEquals("Office in Brighton" + nl, Files.readString(new File(outputDir, "notice 1.txt").toPath()));
+  }
+
+  @Test
+  void processFilesIncremental() throws Exception {
+    File csvFile = createTempFileWithContent("\"first_name\",\"city\"\n\"John\",\"Leeds\"\n\"Jane\",\"York\"", ".csv");
+    File templateFile = createTempFileWithContent("Dear [[first_name]]", ".txt");
+    File outputDir = new File(tempDir, "incremental");
+    String[] args = {"--email", "--email-template", templateFile.getAbsolutePath(),
+        "--output-dir", outputDir.getAbsolutePath(), "--csv-file", csvFile.getAbsolutePath(), "--incremental"};
+
+    Reader.processFiles(args);
+    File first = new File(outputDir, "email 1.txt");
+    File second = new File(outputDir, "email 2.txt");
+    Files.writeString(first.toPath(), "untouched");
+    Files.writeString(second.toPath(), "untouched");
+
+    // Only the city of John changes, which the template does not use.
+    Files.writeString(csvFile.toPath(), "\"first_name\",\"city\"\n\"John\",\"Hull\"\n\"Janet\",\"York\"");
+    Reader.processFiles(args);
+    assertEquals("untouched", Files.readString(first.toPath()));
+    assertEquals("Dear Janet" + System.lineSeparator(), Files.readString(second.toPath()));
+
+    Files.writeString(csvFile.toPath(), "\"first_name\",\"city\"\n\"John\",\"Hull\"");
+    Reader.processFiles(args);
+    assertTrue(first.exists());
+    assertFalse(second.exists());
+  }
+
+  @Test
+  void processFilesMetricsJson() throws Exception {
+    File csvFile = createTempFileWithContent("\"first_name\"\n\"John\"\n\"Jane\"", ".csv");
+    File templateFile = createTempFileWithContent("Dear [[first_name]]", ".txt");
+    File outputDir = new File(tempDir, "measured");
+    File json = new File(tempDir, "metrics.json");
+
+    Reader.processFiles(new String[]{"--email", "--email-template", templateFile.getAbsolutePath(),
+        "--output-dir", outputDir.getAbsolutePath(), "--csv-file", csvFile.getAbsolutePath(),
+        "--metrics-json", json.getAbsolutePath()});
+
+    String metrics = Files.readString(json.toPath());
+    assertTrue(metrics.contains("\"csvBytes\":" + csvFile.length() + ","));
+    assertTrue(metrics.contains("\"rows\":2,\"files\":2,"));
+    assertTrue(new File(outputDir, "email 2.txt").exists());
+  }
+
+  @Test
+  void processFilesSharded() throws Exception {
+    File csvFile = createTempFileWithContent("\"first_name\"\n\"A\"\n\"B\"\n\"C\"\n\"D\"\n\"E\"", ".csv");
+    File templateFile = createTempFileWithContent("Dear [[first_name]]", ".txt");
+    File outputDir = new File(tempDir, "sharded");
+
+    for (String shard : new String[]{"1/2", "2/2"}) {
+      Reader.processFiles(new String[]{"--email", "--email-template", templateFile.getAbsolutePath(),
+          "--output-dir", outputDir.getAbsolutePath(), "--csv-file", csvFile.getAbsolutePath(),
+          "--shard", shard});
+      if (shard.equals("1/2")) {
+        assertTrue(new File(outputDir, "email 1.txt").exists());
+        assertFalse(new File(outputDir, "email 2.txt").exists());
+        assertTrue(new File(outputDir, "email 5.txt").exists());
+      }
+    }
+
+    assertEquals(5, outputDir.list().length);
+    assertEquals("Dear D" + System.lineSeparator(),
+        Files.readString(new File(outputDir, "email 4.txt").toPath()));
+  }
+
+  @Test
+  void processFilesBatched() throws Exception {
+    StringBuilder csv = new StringBuilder("\"first_name\"\n");
+    for (int i = 1; i <= 50; i++) {
+      csv.append("\"Person ").append(i).append("\"\n");
+    }
+    File csvFile = createTempFileWithContent(csv.toString(), ".csv");
+    File templateFile = createTempFileWithContent("Dear [[first_name]]", ".txt");
+    File outputDir = new File(tempDir, "batched");
+
+    Reader.processFiles(new String[]{"--email", "--email-template", templateFile.getAbsolutePath(),
+        "--output-dir", outputDir.getAbsolutePath(), "--csv-file", csvFile.getAbsolutePath(),
+        "--threads", "3", "--batch-size", "7"});
+
+    // 50 rows are 7 full batches and a partial one, which must be written too.
+    assertEquals(50, outputDir.list().length);
+    assertEquals("Dear Person 50" + System.lineSeparator(),
+        Files.readString(new File(outputDir, "email 50.txt").toPath()));
+  }
+
+  @Test
+  void shardFileName() throws Exception {
+    CommandLineParser sharded = new CommandLineParser(new String[]{"--shard", "3/8"});
+    assertEquals("documents-3of8.zip", Reader.shardFileName(sharded, "documents.zip"));
+    assertEquals(".progress-3of8.journal", Reader.shardFileName(sharded, ".progress.journal"));
+    assertEquals("journal-3of8", Reader.shardFileName(sharded, "journal"));
+    assertEquals("documents.zip", Reader.shardFileName(new CommandLineParser(new String[]{}), "documents.zip"));
+  }
+
   @Test
   void readTemplate() throws IOException {
     String templateContent = "Dear [[first_name]] [[last_name]]," + System.lineSeparator() +
@@ -117,6 +294,11 @@ class ReaderTest {
     String actualContent = Reader.readTemplate(tempFile.getPath());
     assertEquals(templateContent, actualContent);
 
+    String nl = System.lineSeparator();
+    tempFile = createTempFileWithContent("Dear Zoe,\r\nline\rlast\n\nno break", ".txt");
+    assertEquals("Dear Zoe," + nl + "line" + nl + "last" + nl + nl + "no break" + nl,
+        Reader.readTemplate(tempFile.getPath()));
+
 
     String emptyContent = "";
     tempFile = createTempFileWithContent(emptyContent, ".txt");
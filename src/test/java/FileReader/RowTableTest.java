@@ -0,0 +1,89 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class RowTableTest {
+
+  private RowTable table() {
+    RowTable table = new RowTable();
+    table.addRow(List.of("first_name", "last_name", "email"));
+    table.addRow(List.of("John", "Doe", "john@x.com"));
+    table.addRow(Arrays.asList("Jane", null, ""));
+    table.addRow(List.of());
+    table.addRow(List.of("Solo"));
+    return table;
+  }
+
+  @Test
+  void sizeAndWidth() {
+    RowTable table = table();
+    assertEquals(5, table.size());
+    assertEquals(3, table.width(0));
+    assertEquals(3, table.width(2));
+    assertEquals(0, table.width(3));
+    assertEquals(1, table.width(4));
+  }
+
+  @Test
+  void get() {
+    RowTable table = table();
+    assertEquals("first_name", table.get(0, 0));
+    assertEquals("john@x.com", table.get(1, 2));
+    assertNull(table.get(2, 1));
+    assertEquals("", table.get(2, 2));
+    assertNull(table.get(4, 1));
+  }
+
+  @Test
+  void row() {
+    RowTable table = table();
+    assertEquals(List.of("John", "Doe", "john@x.com"), table.row(1));
+    assertEquals(Arrays.asList("Jane", null, ""), table.row(2));
+    assertTrue(table.row(3).isEmpty());
+    assertThrows(IndexOutOfBoundsException.class, () -> table.row(4).get(1));
+  }
+
+  @Test
+  void asMap() {
+    Map<Integer, List<String>> map = table().asMap();
+    assertEquals(5, map.size());
+    assertEquals(List.of("John", "Doe", "john@x.com"), map.get(1));
+    assertNull(map.get(5));
+    assertNull(map.get("1"));
+    assertEquals(Map.of(0, List.of("a"), 1, List.of("b")), rows("a", "b").asMap());
+    assertThrows(UnsupportedOperationException.class, () -> map.put(5, List.of()));
+  }
+
+  @Test
+  void handleRejectsOutOfOrderRows() {
+    RowTable table = new RowTable();
+    table.handle(0, List.of("header"));
+    assertThrows(IllegalArgumentException.class, () -> table.handle(2, List.of("value")));
+  }
+
+  @Test
+  void growsPastInitialCapacity() {
+    RowTable table = new RowTable();
+    String longValue = "x".repeat(100_000);
+    for (int i = 0; i < 5_000; i++) {
+      table.addRow(List.of("row" + i, longValue.substring(0, i % 50)));
+    }
+    table.addRow(List.of(longValue));
+    assertEquals(5_001, table.size());
+    assertEquals("row4321", table.get(4321, 0));
+    assertEquals(longValue, table.get(5_000, 0));
+  }
+
+  private RowTable rows(String... values) {
+    RowTable table = new RowTable();
+    for (String value : values) {
+      table.addRow(List.of(value));
+    }
+    return table;
+  }
+}
@@ -0,0 +1,43 @@
+package FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import FileWriter.CompiledTemplate;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TemplateCacheTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void rereadsChangedTemplates() throws IOException {
+    File template = new File(tempDir, "email.txt");
+    Files.writeString(template.toPath(), "Dear [[first_name]]");
+    TemplateCache cache = new TemplateCache(2);
+
+    String first = cache.read(template.getPath());
+    assertSame(first, cache.read(template.getPath()));
+    assertEquals(1, cache.getHits());
+
+    Files.writeString(template.toPath(), "Hello [[first_name]]!");
+    assertEquals("Hello [[first_name]]!" + System.lineSeparator(), cache.read(template.getPath()));
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  void compileEvictsLeastRecentlyUsed() {
+    TemplateCache cache = new TemplateCache(2);
+    Map<String, Integer> header = Map.of("first_name", 0);
+    CompiledTemplate a = cache.compile("A [[first_name]]", header);
+    CompiledTemplate b = cache.compile("B [[first_name]]", header);
+    assertSame(a, cache.compile("A [[first_name]]", Map.of("first_name", 0)));
+    assertNotSame(a, cache.compile("A [[first_name]]", Map.of("first_name", 1)));
+    assertNotSame(b, cache.compile("B [[first_name]]", header));
+  }
+}
@@ -0,0 +1,129 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateTest {
+
+  private Map<String, Integer> headerMap() {
+    Map<String, Integer> headerMap = new HashMap<>();
+    headerMap.put("First Name", 0);
+    headerMap.put("Last Name", 1);
+    headerMap.put("Age", 2);
+    return headerMap;
+  }
+
+  @Test
+  void render() {
+    CompiledTemplate template = CompiledTemplate.compile(
+        "Name: [[First Name]] [[Last Name]], Age: [[Age]]. Bye [[First Name]]", headerMap());
+
+    assertEquals("Name: John Doe, Age: 30. Bye John", template.render(List.of("John", "Doe", "30")));
+    assertEquals("Name: Jane Smith, Age: 25. Bye Jane", template.render(List.of("Jane", "Smith", "25")));
+  }
+
+  @Test
+  void renderUtf8MatchesRender() {
+    CompiledTemplate template = CompiledTemplate.compile(
+        "Grüße [[First Name|upper]] – [[#if Age]]age [[Age]][[#else]]no age[[/if]] 😀 [[Nickname]]",
+        headerMap());
+
+    List<List<String>> rows = List.of(
+        List.of("Zoë", "Doe", "30"),
+        List.of("emoji 😀 and a lone \uD83D surrogate", "Doe", ""),
+        Arrays.asList("x".repeat(40_000) + "é", null, "41"),
+        List.of("Ann"));
+    for (List<String> row : rows) {
+      String expected = template.render(row);
+      Utf8Buffer rendered = template.renderUtf8(row);
+      ByteBuffer content = rendered.content();
+      byte[] bytes = new byte[content.remaining()];
+      content.get(bytes);
+
+      assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes);
+      assertEquals(expected.length(), rendered.chars());
+    }
+  }
+
+  @Test
+  void renderKeepsUnknownPlaceholders() {
+    CompiledTemplate template = CompiledTemplate.compile("[[First Name]] [[Nickname]] [[Age]]", headerMap());
+
+    assertEquals("John [[Nickname]] [[Age]]", template.render(List.of("John", "Doe")));
+  }
+
+  @Test
+  void renderIntoBuffer() {
+    CompiledTemplate template = CompiledTemplate.compile("Hi [[First Name]]!", headerMap());
+    StringBuilder out = new StringBuilder("> ");
+
+    template.render(List.of("John"), out);
+
+    assertEquals("> Hi John!", out.toString());
+  }
+
+  @Test
+  void renderFilters() {
+    Map<String, Integer> headerMap = headerMap();
+    headerMap.put("Joined", 3);
+    headerMap.put("Premium", 4);
+    CompiledTemplate template = CompiledTemplate.compile("[[First Name|upper]] [[Last Name|default:Customer]]"
+        + " joined [[Joined|date:d MMMM yyyy]], paying [[Premium|currency]] ([[Premium|currency:en-GB]])."
+        + " [[Nickname|default:none]] [[Nickname|lower]]", headerMap);
+
+    assertEquals("JOSÉ Customer joined 1 March 2024, paying $1,234.50 (£1,234.50). none [[Nickname|lower]]",
+        template.render(List.of("José", "", "30", "2024-03-01", "1234.5")));
+    // Values a filter cannot parse are kept as they are.
+    assertEquals("JANE Smith joined soon, paying n/a (n/a). none [[Nickname|lower]]",
+        template.render(List.of("Jane", "Smith", "25", "soon", "n/a")));
+  }
+
+  @Test
+  void renderConditionals() {
+    Map<String, Integer> headerMap = headerMap();
+    headerMap.put("policy_type", 3);
+    CompiledTemplate template = CompiledTemplate.compile("Dear [[First Name]],"
+        + "[[#if policy_type == auto]] your car[[#if Age]], age [[Age]][[/if]][[#else]] your home[[/if]]."
+        + "[[#if policy_type != \"auto\"]] ([[policy_type]])[[/if]]", headerMap);
+
+    assertEquals("Dear John, your car, age 30.", template.render(List.of("John", "Doe", "30", "auto")));
+    assertEquals("Dear Jane, your car.", template.render(List.of("Jane", "Smith", "", "auto")));
+    assertEquals("Dear Bob, your home. (home)", template.render(List.of("Bob", "Lee", "41", "home")));
+
+    assertEquals(List.of("First Name", "policy_type", "Age", "Age", "policy_type", "policy_type"),
+        template.getPlaceholders());
+  }
+
+  @Test
+  void compileRejectsBrokenSections() {
+    assertEquals("[[#if Age]] is never closed with [[/if]].", assertThrows(IllegalArgumentException.class,
+        () -> CompiledTemplate.compile("[[#if Age]] [[First Name]]", headerMap())).getMessage());
+    assertEquals("Unexpected [[/if]] in the template.", assertThrows(IllegalArgumentException.class,
+        () -> CompiledTemplate.compile("[[First Name]][[/if]]", headerMap())).getMessage());
+    assertEquals("Unexpected [[#else]] in the template.", assertThrows(IllegalArgumentException.class,
+        () -> CompiledTemplate.compile("[[#if Age]][[#else]][[#else]][[/if]]", headerMap())).getMessage());
+    assertEquals("Unknown filter in the template: shout", assertThrows(IllegalArgumentException.class,
+        () -> CompiledTemplate.compile("[[First Name|shout]]", headerMap())).getMessage());
+  }
+
+  @Test
+  void compileWithoutPlaceholders() {
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> CompiledTemplate.compile("No placeholder", headerMap()));
+    assertEquals("No placeholders found in the input string.", exception.getMessage());
+  }
+
+  @Test
+  void getPlaceholders() {
+    CompiledTemplate template = CompiledTemplate.compile("[[Age]] [[First Name]]", headerMap());
+
+    assertEquals(List.of("Age", "First Name"), template.getPlaceholders());
+  }
+}
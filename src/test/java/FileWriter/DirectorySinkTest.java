@@ -0,0 +1,98 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectorySinkTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void writeUtf8() throws IOException {
+    try (DirectorySink sink = new DirectorySink(tempDir.getPath())) {
+      sink.write("email 1.txt", "Insurance company – information");
+    }
+
+    byte[] bytes = Files.readAllBytes(new File(tempDir, "email 1.txt").toPath());
+    assertArrayEquals("Insurance company – information".getBytes(StandardCharsets.UTF_8), bytes);
+  }
+
+  @Test
+  void writeUtf8Bytes() throws IOException {
+    byte[] bytes = "Grüße – 😀".getBytes(StandardCharsets.UTF_8);
+    try (DirectorySink sink = new DirectorySink(tempDir.getPath())) {
+      assertTrue(sink.acceptsUtf8());
+      sink.write("email 2.txt", "old content that is replaced");
+      sink.writeUtf8("email 2.txt", ByteBuffer.wrap(bytes));
+    }
+
+    assertArrayEquals(bytes, Files.readAllBytes(new File(tempDir, "email 2.txt").toPath()));
+  }
+
+  @Test
+  void outputRowRendersStraightToBytes() throws IOException {
+    CompiledTemplate template = CompiledTemplate.compile("Dear [[First Name]] – bye", Map.of("First Name", 0));
+    try (DirectorySink sink = new DirectorySink(tempDir.getPath())) {
+      TemplateProcessor.outputRow(template, List.of("Zoë"), sink, "email", 3);
+    }
+
+    assertEquals("Dear Zoë – bye", Files.readString(new File(tempDir, "email 3.txt").toPath(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void writeLargerThanBuffer() throws IOException {
+    String content = "é".repeat(100_000);
+    try (DirectorySink sink = new DirectorySink(tempDir.getPath())) {
+      sink.write("letter 1.txt", "old content that is replaced");
+      sink.write("letter 1.txt", content);
+    }
+
+    assertEquals(content, Files.readString(new File(tempDir, "letter 1.txt").toPath(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void flushWritesBatchedDocuments() throws IOException {
+    File file = new File(tempDir, "email 1.txt");
+    try (DirectorySink sink = new DirectorySink(tempDir.getPath())) {
+      sink.write("email 1.txt", "Dear John");
+      assertFalse(file.exists());
+
+      sink.flush();
+      assertEquals("Dear John", Files.readString(file.toPath()));
+    }
+  }
+
+  @Test
+  void writesDocumentsOfEveryBatch() throws Exception {
+    String content = "Dear customer – ".repeat(200);
+    try (DirectorySink sink = new DirectorySink(tempDir.getPath())) {
+      Thread other = new Thread(() -> {
+        try {
+          sink.writeUtf8("other 1.txt", ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      other.start();
+      other.join();
+      for (int i = 1; i <= 500; i++) {
+        sink.write("email " + i + ".txt", content + i);
+      }
+    }
+
+    assertEquals(content, Files.readString(new File(tempDir, "other 1.txt").toPath()));
+    for (int i = 1; i <= 500; i++) {
+      assertEquals(content + i, Files.readString(new File(tempDir, "email " + i + ".txt").toPath()));
+    }
+  }
+}
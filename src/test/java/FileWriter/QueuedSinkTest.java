@@ -0,0 +1,138 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueuedSinkTest {
+
+  @Test
+  void writesEveryDocument() throws IOException {
+    MemorySink memory = new MemorySink();
+    try (QueuedSink sink = new QueuedSink(memory, 3, 5)) {
+      for (int i = 1; i <= 100; i++) {
+        sink.write("email " + i + ".txt", new StringBuilder("Dear ").append(i));
+      }
+      sink.flush();
+      assertEquals(100, memory.getDocuments().size());
+    }
+    assertEquals("Dear 42", memory.getDocuments().get("email 42.txt"));
+  }
+
+  @Test
+  void writeUtf8CopiesTheCallersBuffer() throws IOException {
+    MemorySink memory = new MemorySink();
+    try (QueuedSink sink = new QueuedSink(memory, 2, 4)) {
+      assertFalse(sink.acceptsUtf8());
+      ByteBuffer buffer = ByteBuffer.allocate(64);
+      for (int i = 1; i <= 20; i++) {
+        buffer.clear();
+        buffer.put(("Grüße " + i).getBytes(StandardCharsets.UTF_8)).flip();
+        sink.writeUtf8("letter " + i + ".txt", buffer);
+      }
+    }
+    assertEquals(20, memory.getDocuments().size());
+    assertEquals("Grüße 7", memory.getDocuments().get("letter 7.txt"));
+  }
+
+  @Test
+  void writeUtf8ReusesDirectBuffers() throws IOException {
+    List<ByteBuffer> written = new ArrayList<>();
+    OutputSink channel = new OutputSink() {
+      @Override
+      public void write(String name, CharSequence content) {
+        fail("Documents are written as UTF-8");
+      }
+
+      @Override
+      public void writeUtf8(String name, ByteBuffer content) {
+        written.add(content);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    try (QueuedSink sink = new QueuedSink(channel, 1, 1)) {
+      sink.writeUtf8("letter 1.txt", ByteBuffer.wrap("Dear A".getBytes(StandardCharsets.UTF_8)));
+      sink.flush();
+      sink.writeUtf8("letter 2.txt", ByteBuffer.wrap("Dear B".getBytes(StandardCharsets.UTF_8)));
+      sink.flush();
+    }
+    assertEquals(2, written.size());
+    assertTrue(written.get(0).isDirect());
+    assertSame(written.get(0), written.get(1));
+    assertEquals("Dear B", StandardCharsets.UTF_8.decode(written.get(1)).toString());
+  }
+
+  @Test
+  void blocksWhenQueueIsFull() throws Exception {
+    CountDownLatch disk = new CountDownLatch(1);
+    AtomicInteger written = new AtomicInteger();
+    OutputSink slow = new OutputSink() {
+      @Override
+      public void write(String name, CharSequence content) throws IOException {
+        try {
+          disk.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        written.incrementAndGet();
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    try (QueuedSink sink = new QueuedSink(slow, 1, 2)) {
+      sink.write("email 1.txt", "a");
+      sink.write("email 2.txt", "b");
+      CountDownLatch third = new CountDownLatch(1);
+      Thread producer = new Thread(() -> {
+        try {
+          sink.write("email 3.txt", "c");
+          third.countDown();
+        } catch (IOException e) {
+          fail(e);
+        }
+      });
+      producer.start();
+      assertFalse(third.await(200, TimeUnit.MILLISECONDS));
+
+      disk.countDown();
+      assertTrue(third.await(5, TimeUnit.SECONDS));
+      producer.join();
+    }
+    assertEquals(3, written.get());
+  }
+
+  @Test
+  void reportsWriterFailure() {
+    OutputSink broken = new OutputSink() {
+      @Override
+      public void write(String name, CharSequence content) throws IOException {
+        throw new IOException("disk full");
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    IOException exception = assertThrows(IOException.class, () -> {
+      try (QueuedSink sink = new QueuedSink(broken, 2, 4)) {
+        sink.write("email 1.txt", "a");
+      }
+    });
+    assertEquals("Failed to generate output files: disk full", exception.getMessage());
+  }
+}
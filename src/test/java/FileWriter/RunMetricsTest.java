@@ -0,0 +1,47 @@
+package FileWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class RunMetricsTest {
+
+  @Test
+  void histogramPercentiles() {
+    RunMetrics.Histogram histogram = new RunMetrics.Histogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(1_500);
+    }
+    histogram.record(1_000_000);
+
+    assertEquals(100, histogram.count());
+    assertEquals(2.048, histogram.percentileMicros(0.5), 1e-9);
+    assertEquals(2.048, histogram.percentileMicros(0.99), 1e-9);
+    assertEquals(1000.0, histogram.percentileMicros(1.0), 1e-9);
+    assertEquals(1000.0, histogram.maxMicros(), 1e-9);
+    assertEquals(11.485, histogram.meanMicros(), 1e-9);
+  }
+
+  @Test
+  void countsAndReports() {
+    RunMetrics metrics = new RunMetrics();
+    metrics.rowParsed();
+    metrics.rowParsed();
+    metrics.csvRead(2048);
+    metrics.csvRead(1024);
+    metrics.rendered(3_000);
+    metrics.written(40_000, 120);
+    metrics.finish();
+
+    assertEquals(2, metrics.getRows());
+    assertEquals(1, metrics.getFiles());
+    assertTrue(metrics.getHeapHighWater() > 0);
+    String json = metrics.toJson();
+    assertTrue(json.startsWith("{\"elapsedSeconds\":"));
+    assertTrue(json.contains("\"csvBytes\":2048,"));
+    assertTrue(json.contains("\"rows\":2,\"files\":1,"));
+    assertTrue(json.contains("\"outputChars\":120,"));
+    assertTrue(json.contains("\"write\":{\"count\":1,\"meanMicros\":40.000,"));
+    assertTrue(metrics.summary().contains("Rows parsed:  2,"));
+  }
+}
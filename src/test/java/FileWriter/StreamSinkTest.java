@@ -0,0 +1,24 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamSinkTest {
+
+  @Test
+  void write() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (StreamSink sink = new StreamSink(out, false)) {
+      sink.write("email 1.txt", "Dear John");
+      sink.write("email 2.txt", "Dear Jane");
+    }
+
+    String nl = System.lineSeparator();
+    assertEquals("==> email 1.txt <==" + nl + "Dear John" + nl + "==> email 2.txt <==" + nl + "Dear Jane" + nl,
+        out.toString(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,58 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateLayoutCacheTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void getStoresAndReusesLayouts() throws IOException {
+    File folder = new File(tempDir, "layouts");
+    String template = "Dear [[first_name]], [[#if city]]in [[city]][[/if]]";
+
+    TemplateLayoutCache first = new TemplateLayoutCache(folder.getPath());
+    TemplateLayout layout = first.get(template);
+    assertEquals(1, first.getMisses());
+    File entry = new File(folder, TemplateLayoutCache.hash(template) + TemplateLayoutCache.EXTENSION);
+    assertTrue(entry.exists());
+
+    // A later run reads the layout back; a changed template gets an entry of its own.
+    TemplateLayoutCache second = new TemplateLayoutCache(folder.getPath());
+    assertEquals(layout, second.get(template));
+    second.get(template + "!");
+    assertEquals(1, second.getHits());
+    assertEquals(1, second.getMisses());
+    assertEquals(2, folder.list().length);
+  }
+
+  @Test
+  void getReplacesUnreadableEntries() throws IOException {
+    String template = "Dear [[first_name]]";
+    TemplateLayoutCache cache = new TemplateLayoutCache(tempDir.getPath());
+    File entry = new File(tempDir, TemplateLayoutCache.hash(template) + TemplateLayoutCache.EXTENSION);
+    Files.writeString(entry.toPath(), "garbage");
+    ByteArrayOutputStream console = new ByteArrayOutputStream();
+    cache.setConsole(new PrintStream(console, true));
+
+    assertEquals(TemplateLayout.parse(template), cache.get(template));
+    assertEquals(1, cache.getMisses());
+    assertTrue(console.toString().startsWith("Replacing unreadable template cache entry " + entry.getName()));
+    assertEquals(TemplateLayout.parse(template), cache.get(template));
+    assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  void hash() {
+    assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", TemplateLayoutCache.hash(""));
+  }
+}
@@ -0,0 +1,51 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateLayoutTest {
+
+  private static final String TEMPLATE = "Dear [[first_name|upper]],\n"
+      + "[[#if policy_type == \"auto\"]]Your car[[#else]]Your [[policy_type|default:policy]][[/if]] "
+      + "renews on [[renewal|date:d MMMM yyyy]]. Zoë";
+
+  private static byte[] write(TemplateLayout layout) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    layout.writeTo(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  @Test
+  void writeAndReadBack() throws IOException {
+    TemplateLayout layout = TemplateLayout.parse(TEMPLATE);
+
+    TemplateLayout read = TemplateLayout.readFrom(new DataInputStream(new ByteArrayInputStream(write(layout))));
+
+    assertEquals(layout, read);
+    assertEquals(Set.of("first_name", "policy_type", "renewal"), read.getColumns());
+    Map<String, Integer> headerMap = Map.of("first_name", 0, "policy_type", 1, "renewal", 2);
+    assertEquals(CompiledTemplate.compile(TEMPLATE, headerMap).render(List.of("Ann", "home", "2025-01-31")),
+        CompiledTemplate.compile(read, headerMap).render(List.of("Ann", "home", "2025-01-31")));
+  }
+
+  @Test
+  void readRejectsCorruptData() throws IOException {
+    byte[] bytes = write(TemplateLayout.parse(TEMPLATE));
+
+    byte[] truncated = java.util.Arrays.copyOf(bytes, bytes.length - 3);
+    assertThrows(IOException.class,
+        () -> TemplateLayout.readFrom(new DataInputStream(new ByteArrayInputStream(truncated))));
+    bytes[0] = 'X';
+    assertThrows(IOException.class,
+        () -> TemplateLayout.readFrom(new DataInputStream(new ByteArrayInputStream(bytes))));
+  }
+}
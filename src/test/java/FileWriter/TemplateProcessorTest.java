@@ -4,10 +4,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -45,6 +50,48 @@ class TemplateProcessorTest {
 
   }
 
+  @Test
+  void outputFilesParallel() throws IOException {
+
+    Map<Integer, List<String>> csvContent = new HashMap<>();
+    csvContent.put(0, List.of("First Name", "Age"));
+    for (int i = 1; i <= 20; i++) {
+      csvContent.put(i, List.of("Person" + i, String.valueOf(i)));
+    }
+    Map<String, Integer> headerMap = new HashMap<>();
+    headerMap.put("First Name", 0);
+    headerMap.put("Age", 1);
+
+
+    TemplateProcessor.outputFiles(csvContent, "[[First Name]] is [[Age]]", OUTPUT_DIR, headerMap, "parallel", 4);
+
+
+    for (int i = 1; i <= 20; i++) {
+      File file = new File(OUTPUT_DIR + File.separator + "parallel " + i + ".txt");
+      assertTrue(file.exists());
+      assertEquals("Person" + i + " is " + i, Files.readString(file.toPath()));
+      file.delete();
+    }
+  }
+
+  @Test
+  void outputFilesToSink() throws IOException {
+
+    Map<Integer, List<String>> csvContent = new HashMap<>();
+    csvContent.put(0, List.of("First Name"));
+    csvContent.put(1, List.of("John"));
+    csvContent.put(2, List.of("Jane"));
+    Map<String, Integer> headerMap = new HashMap<>();
+    headerMap.put("First Name", 0);
+    MemorySink sink = new MemorySink();
+
+
+    TemplateProcessor.outputFiles(csvContent, "Dear [[First Name]]", sink, headerMap, "email", 1);
+
+
+    assertEquals(Map.of("email 1.txt", "Dear John", "email 2.txt", "Dear Jane"), sink.getDocuments());
+  }
+
   @Test
   void createOutputDirectory() throws IOException {
 
@@ -119,6 +166,17 @@ class TemplateProcessorTest {
     assertEquals("No placeholders found in the input string.", exception.getMessage());
   }
 
+  @Test
+  void referencedColumns() {
+
+    Set<String> columns = TemplateProcessor.referencedColumns(
+        List.of("To: [[email]] Dear [[first_name]]", "[[first_name]] [[city]]", "No placeholder",
+            "[[#if policy_type == auto]][[premium|currency]][[/if]]"));
+
+
+    assertEquals(Set.of("email", "first_name", "city", "policy_type", "premium"), columns);
+  }
+
   @Test
   void writeOutputFile() throws IOException {
 
@@ -134,4 +192,42 @@ class TemplateProcessorTest {
       file.delete();
     }
   }
+
+  @Test
+  void utf8Length() {
+
+    assertEquals(0, TemplateProcessor.utf8Length(""));
+    assertEquals("Zoë – 😀".getBytes(java.nio.charset.StandardCharsets.UTF_8).length,
+        TemplateProcessor.utf8Length("Zoë – 😀"));
+  }
+
+  @Test
+  void outputRowRecordsFlightEvents() throws IOException {
+
+    CompiledTemplate template = CompiledTemplate.compile("Dear [[First Name]]", Map.of("First Name", 0));
+    MemorySink sink = new MemorySink();
+    File recordingFile = File.createTempFile("generation", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(TemplateRenderedEvent.class);
+      recording.enable(FileWrittenEvent.class);
+      recording.start();
+      TemplateProcessor.outputRow(template, List.of("Zoë"), new TimedSink(sink, null), "email", 7);
+      recording.stop();
+      recording.dump(recordingFile.toPath());
+    }
+
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile.toPath());
+    recordingFile.delete();
+    assertEquals(2, events.size());
+    RecordedEvent rendered = events.stream()
+        .filter(e -> e.getEventType().getName().equals("FileWriter.TemplateRendered")).findFirst().get();
+    assertEquals(7, rendered.getInt("rowIndex"));
+    assertEquals("email", rendered.getString("type"));
+    assertEquals(9, rendered.getLong("outputBytes"));
+    RecordedEvent written = events.stream()
+        .filter(e -> e.getEventType().getName().equals("FileWriter.FileWritten")).findFirst().get();
+    assertEquals("email 7.txt", written.getString("fileName"));
+    assertEquals(9, written.getLong("bytes"));
+  }
 }
@@ -0,0 +1,65 @@
+package FileWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class TimedSinkTest {
+
+  private static double meanWriteMicros(RunMetrics metrics) {
+    Matcher matcher = Pattern.compile("\"write\":\\{\"count\":\\d+,\"meanMicros\":([0-9.]+)")
+        .matcher(metrics.toJson());
+    assertTrue(matcher.find());
+    return Double.parseDouble(matcher.group(1));
+  }
+
+  @Test
+  void timesTheWriteBehindTheQueue() throws IOException {
+    OutputSink slow = new OutputSink() {
+      @Override
+      public void write(String name, CharSequence content) throws IOException {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    RunMetrics metrics = new RunMetrics();
+    try (QueuedSink sink = new QueuedSink(new TimedSink(slow, metrics), 1, 4)) {
+      for (int i = 1; i <= 3; i++) {
+        sink.write("email " + i + ".txt", "Dear " + i);
+      }
+    }
+    metrics.finish();
+
+    assertEquals(3, metrics.getFiles());
+    // Each write sleeps 50 ms on the writer thread; handing it to the queue takes far less.
+    assertTrue(meanWriteMicros(metrics) >= 45_000, metrics.toJson());
+    assertTrue(metrics.toJson().contains("\"outputChars\":18,"));
+  }
+
+  @Test
+  void writeUtf8CountsCharacters() throws IOException {
+    MemorySink memory = new MemorySink();
+    RunMetrics metrics = new RunMetrics();
+    try (TimedSink sink = new TimedSink(memory, metrics)) {
+      sink.writeUtf8("letter 1.txt", ByteBuffer.wrap("Zoë – 😀".getBytes(StandardCharsets.UTF_8)));
+    }
+    metrics.finish();
+
+    assertEquals("Zoë – 😀", memory.getDocuments().get("letter 1.txt"));
+    assertEquals("Zoë – 😀".length(), TimedSink.utf16Length(
+        ByteBuffer.wrap("Zoë – 😀".getBytes(StandardCharsets.UTF_8))));
+    assertTrue(metrics.toJson().contains("\"outputChars\":" + "Zoë – 😀".length() + ","));
+  }
+}
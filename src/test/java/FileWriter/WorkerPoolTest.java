@@ -0,0 +1,40 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkerPoolTest {
+
+  @Test
+  void runsEveryTask() throws IOException {
+    AtomicInteger count = new AtomicInteger();
+    try (WorkerPool pool = new WorkerPool(3)) {
+      for (int i = 0; i < 100; i++) {
+        pool.submit(count::incrementAndGet);
+      }
+      pool.await();
+    }
+    assertEquals(100, count.get());
+  }
+
+  @Test
+  void reportsWorkerFailure() {
+    IOException exception = assertThrows(IOException.class, () -> {
+      try (WorkerPool pool = new WorkerPool(2)) {
+        pool.submit(() -> {
+          throw new IOException("disk full");
+        });
+        pool.await();
+      }
+    });
+    assertEquals("Failed to generate output files: disk full", exception.getMessage());
+  }
+
+  @Test
+  void rejectsInvalidThreadCount() {
+    assertThrows(IllegalArgumentException.class, () -> new WorkerPool(0));
+  }
+}
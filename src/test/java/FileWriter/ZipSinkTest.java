@@ -0,0 +1,37 @@
+package FileWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipSinkTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void write() throws IOException {
+    File zipFile = new File(tempDir, ZipSink.ARCHIVE_NAME);
+    try (ZipSink archive = new ZipSink(zipFile.getPath())) {
+      archive.write("email 1.txt", "Dear John");
+      archive.write("email 2.txt", "Dear Jane – welcome");
+    }
+
+    try (ZipInputStream in = new ZipInputStream(new FileInputStream(zipFile))) {
+      ZipEntry first = in.getNextEntry();
+      assertEquals("email 1.txt", first.getName());
+      assertEquals("Dear John", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      ZipEntry second = in.getNextEntry();
+      assertEquals("email 2.txt", second.getName());
+      assertEquals("Dear Jane – welcome", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      assertNull(in.getNextEntry());
+    }
+  }
+}